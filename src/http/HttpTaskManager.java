@@ -4,93 +4,243 @@ import com.google.gson.*;
 import exception.ManagerException;
 import manager.history.HistoryManager;
 import manager.task.FileBackedTasksManager;
+import manager.task.GroupCommit;
 import tasks.Epic;
 import tasks.SubTask;
 import tasks.Task;
+import utils.IntLinkedSet;
 import utils.LocalDateTimeAdapter;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-
+/**
+ * Менеджер задач с сохранением на {@link KVServer}.
+ * <p>Каждая задача, эпик и подзадача хранятся под своим ключом ({@code task-<id>}, {@code epic-<id>},
+ * {@code subtask-<id>}), состав доски - в ключе {@value #MANIFEST} (списки id по типам),
+ * история - в ключе {@value #HISTORY} (список id). {@link #save()} отправляет одним пакетом
+ * ({@link KVTaskClient#putAll}) только задачи, добавленные или обновлённые после прошлого сохранения,
+ * и манифест с историей, если они изменились: сервер принимает пакет целиком, поэтому манифест
+ * не ссылается на неотправленные задачи. Загрузка - два пакета: манифест с историей, затем задачи.</p>
+ * <p>Состав доски ведётся по ходу изменений ({@link #changed}, {@link #removed}): манифест собирается
+ * только после добавления или удаления, история - только после просмотра или удаления, поэтому сохранение
+ * обновления задачи не обходит всю доску. Ключи удалённых с прошлого сохранения задач (в том числе подзадач
+ * удалённого эпика и задач, удалённых очисткой списка) удаляются на сервере в том же пакете.
+ * Расчётные поля эпика при изменении подзадач не отправляются: при загрузке эпик пересчитывается
+ * по своим подзадачам.</p>
+ */
 public class HttpTaskManager extends FileBackedTasksManager {
-    private static final String TASKS = "tasks";
-    private static final String SUBTASKS = "subtasks";
-    private static final String EPICS = "epics";
+    private static final String TASK = "task-";
+    private static final String SUBTASK = "subtask-";
+    private static final String EPIC = "epic-";
+    private static final String MANIFEST = "manifest";
     private static final String HISTORY = "history";
 
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .create();
 
-    private final KVTaskClient client = new KVTaskClient();
+    private final KVTaskClient client;
+    private final IntLinkedSet changedIds = new IntLinkedSet();
+    private final Set<String> removedKeys = new LinkedHashSet<>();
+    private final IntLinkedSet taskIds = new IntLinkedSet();
+    private final IntLinkedSet epicIds = new IntLinkedSet();
+    private final IntLinkedSet subTaskIds = new IntLinkedSet();
+    private boolean manifestChanged;
+    private boolean historyChanged;
+    private String savedHistory;
 
     public HttpTaskManager(HistoryManager historyManager) throws IOException, InterruptedException {
-        super(historyManager);
-
-        String loadTasks = client.load(TASKS);
-        String loadEpics = client.load(EPICS);
-        String loadHistory = client.load(HISTORY);
-
-        if (loadTasks.isEmpty()) {
-            JsonElement jsonTasks = JsonParser.parseString(loadTasks);
-            if (!jsonTasks.isJsonNull()) {
-                JsonArray jsonTasksArray = jsonTasks.getAsJsonArray();
-                for (JsonElement jsonTask : jsonTasksArray) {
-                    gson.fromJson(jsonTask, Task.class);
-                }
+        this(historyManager, null);
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param groupCommit    групповое сохранение на сервер; null - сохранять после каждой операции
+     */
+    public HttpTaskManager(HistoryManager historyManager, GroupCommit groupCommit)
+            throws IOException, InterruptedException {
+        this(historyManager, groupCommit, new KVTaskClient());
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param groupCommit    групповое сохранение на сервер; null - сохранять после каждой операции
+     * @param client         клиент сервера; клиент, уже загружавший доску, получает с сервера только
+     *                       изменившиеся с тех пор ключи (см. {@link KVTaskClient})
+     */
+    public HttpTaskManager(HistoryManager historyManager, GroupCommit groupCommit, KVTaskClient client) {
+        super(historyManager, groupCommit);
+        this.client = client;
+
+        Map<String, String> head = client.loadAll(List.of(MANIFEST, HISTORY));
+        String manifestJson = head.get(MANIFEST);
+        if (manifestJson != null) {
+            Manifest manifest = gson.fromJson(manifestJson, Manifest.class);
+            List<String> keys = new ArrayList<>();
+            manifest.tasks.forEach(id -> keys.add(TASK + id));
+            manifest.epics.forEach(id -> keys.add(EPIC + id));
+            manifest.subtasks.forEach(id -> keys.add(SUBTASK + id));
+            Map<String, String> entities = keys.isEmpty() ? Map.of() : client.loadAll(keys);
+
+            List<Task> loadedTasks = new ArrayList<>();
+            for (int id : manifest.tasks) {
+                loadedTasks.add(loadEntity(entities, TASK, id, Task.class));
+            }
+            List<Epic> loadedEpics = new ArrayList<>();
+            for (int id : manifest.epics) {
+                Epic epic = loadEntity(entities, EPIC, id, Epic.class);
+                epic.clearSubTasks();
+                loadedEpics.add(epic);
             }
+            List<SubTask> loadedSubTasks = new ArrayList<>();
+            for (int id : manifest.subtasks) {
+                loadedSubTasks.add(loadEntity(entities, SUBTASK, id, SubTask.class));
+            }
+            restoreAll(loadedTasks, loadedEpics, loadedSubTasks);
+            taskIds.addAll(manifest.tasks);
+            epicIds.addAll(manifest.epics);
+            subTaskIds.addAll(manifest.subtasks);
         }
 
-        if (loadEpics.isEmpty()) {
-            JsonElement jsonEpics = JsonParser.parseString(loadEpics);
-            if (!jsonEpics.isJsonNull()) {
-                JsonArray jsonEpicsArray = jsonEpics.getAsJsonArray();
-                for (JsonElement jsonEpic : jsonEpicsArray) {
-                    gson.fromJson(jsonEpic, Epic.class);
+        String historyJson = head.get(HISTORY);
+        if (historyJson != null) {
+            for (JsonElement jsonTaskId : JsonParser.parseString(historyJson).getAsJsonArray()) {
+                Task task = findEntity(jsonTaskId.getAsInt());
+                if (task != null) {
+                    historyManager.add(task);
                 }
             }
+            savedHistory = historyJson;
+        }
+    }
 
-            JsonElement jsonSubTasks = JsonParser.parseString(client.load(SUBTASKS));
-            if (!jsonSubTasks.isJsonNull()) {
-                JsonArray jsonSubTasksArray = jsonSubTasks.getAsJsonArray();
-                for (JsonElement jsonSubtask : jsonSubTasksArray) {
-                    gson.fromJson(jsonSubtask, SubTask.class);
-                }
-            }
+    @Override
+    protected void changed(Task task) {
+        changedIds.addInt(task.getId());
+        if (ids(task).addInt(task.getId())) {
+            manifestChanged = true;
         }
+    }
 
-        if (loadHistory.isEmpty()) {
-            JsonElement jsonHistoryList = JsonParser.parseString(loadHistory);
-            if (!jsonHistoryList.isJsonNull()) {
-                JsonArray jsonHistoryArray = jsonHistoryList.getAsJsonArray();
-                for (JsonElement jsonTaskId : jsonHistoryArray) {
-                    int id = jsonTaskId.getAsInt();
-                    if (epics.containsKey(id)) {
-                        getEpic(id);
-                    } else if (subtasks.containsKey(id)) {
-                        getSubTask(id);
-                    } else if (tasks.containsKey(id)) {
-                        getTask(id);
-                    }
-                }
-            }
+    @Override
+    protected void removed(Task task) {
+        changedIds.removeInt(task.getId());
+        if (ids(task).removeInt(task.getId())) {
+            manifestChanged = true;
+            removedKeys.add(key(task));
         }
+        historyChanged = true;
     }
 
+    @Override
+    protected void viewed(Task task) {
+        historyChanged = true;
+    }
+
+    /**
+     * Отправка изменений на сервер одним пакетом: изменённые задачи, удаления, манифест и история, если они изменились.
+     * Изменения считаются отправленными после успешного запроса, поэтому после сбоя следующее сохранение
+     * повторит их.
+     */
     @Override
     public void save() {
         try {
-            client.put(TASKS, gson.toJson(tasks.values()));
-            client.put(SUBTASKS, gson.toJson(subtasks.values()));
-            client.put(EPICS, gson.toJson(epics.values()));
-            client.put(HISTORY, gson.toJson(getHistory()
-                    .stream()
-                    .map(Task::getId)
-                    .collect(Collectors.toList())));
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int id : changedIds.toIntArray()) {
+                Task task = findEntity(id);
+                if (task != null) {
+                    values.put(key(task), gson.toJson(task));
+                }
+            }
+            if (manifestChanged) {
+                values.put(MANIFEST, gson.toJson(new Manifest(taskIds, epicIds, subTaskIds)));
+            }
+            String history = savedHistory;
+            if (historyChanged) {
+                history = gson.toJson(getHistory()
+                        .stream()
+                        .map(Task::getId)
+                        .collect(Collectors.toList()));
+                if (!history.equals(savedHistory)) {
+                    values.put(HISTORY, history);
+                }
+            }
+            if (!values.isEmpty() || !removedKeys.isEmpty()) {
+                client.putAll(values, removedKeys);
+            }
+            changedIds.clear();
+            removedKeys.clear();
+            manifestChanged = false;
+            historyChanged = false;
+            savedHistory = history;
         } catch (ManagerException e) {
             throw new ManagerException("▓▒░ Критическая ошибка сохранения на сервер", e.getCause());
         }
     }
-}
\ No newline at end of file
+
+    private static <T extends Task> T loadEntity(Map<String, String> entities, String prefix, int id, Class<T> type) {
+        String json = entities.get(prefix + id);
+        if (json == null) {
+            throw new ManagerException("Манифест ссылается на отсутствующий ключ " + prefix + id);
+        }
+        return gson.fromJson(json, type);
+    }
+
+    private Task findEntity(int id) {
+        if (tasks.containsKey(id)) {
+            return tasks.get(id);
+        }
+        if (subtasks.containsKey(id)) {
+            return subtasks.get(id);
+        }
+        return epics.get(id);
+    }
+
+    private static String key(Task task) {
+        switch (task.getType()) {
+            case EPIC:
+                return EPIC + task.getId();
+            case SUBTASK:
+                return SUBTASK + task.getId();
+            default:
+                return TASK + task.getId();
+        }
+    }
+
+    /**
+     * Список id манифеста для типа задачи
+     */
+    private IntLinkedSet ids(Task task) {
+        switch (task.getType()) {
+            case EPIC:
+                return epicIds;
+            case SUBTASK:
+                return subTaskIds;
+            default:
+                return taskIds;
+        }
+    }
+
+    /**
+     * Состав доски: id задач, эпиков и подзадач
+     */
+    private static final class Manifest {
+        private final List<Integer> tasks;
+        private final List<Integer> epics;
+        private final List<Integer> subtasks;
+
+        private Manifest(List<Integer> tasks, List<Integer> epics, List<Integer> subtasks) {
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+        }
+    }
+}
@@ -1,32 +1,53 @@
 package http;
 
 import com.sun.net.httpserver.HttpServer;
+import exception.ManagerException;
 import http.handlers.*;
 import manager.Managers;
-import manager.history.HistoryManager;
 import manager.task.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static http.Config.PORTS.HTTP;
 
 
 public class HttpTaskServer {
     private static final int PORT = HTTP.get();
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
     private final HttpServer httpServer;
+    private final ExecutorService executor;
 
     /**
      * API должен работать так, чтобы все запросы по пути /tasks/<ресурсы> приходили
      * в интерфейс TaskManager.
+     * Запросы обрабатывает пул из {@link #DEFAULT_THREADS} потоков, поэтому менеджер -
+     * потокобезопасный {@link manager.task.ConcurrentTaskManager}.
      * @throws IOException if troubles 'create' , 'bind' throws IOException
      */
     public HttpTaskServer() throws IOException {
-        HistoryManager historyManager = Managers.getDefaultHistory();
-        TaskManager manager = Managers.getFileBackedTaskManager(historyManager);
+        this(Managers.getConcurrentTaskManager(Managers.getConcurrentHistory()), DEFAULT_THREADS);
+    }
 
+    /**
+     * @param manager менеджер задач; при threads больше 1 должен быть потокобезопасным
+     * @param threads количество потоков обработки запросов
+     * @throws IOException if troubles 'create' , 'bind' throws IOException
+     */
+    public HttpTaskServer(TaskManager manager, int threads) throws IOException {
+        if (threads < 1) {
+            throw new ManagerException("Количество потоков сервера должно быть больше нуля");
+        }
         this.httpServer = HttpServer.create();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-task-server");
+            thread.setDaemon(true);
+            return thread;
+        });
 
+        httpServer.setExecutor(executor);
         httpServer.bind(new InetSocketAddress(PORT), 0);
         httpServer.createContext("/tasks/", new OwnerHandler(manager));
         httpServer.createContext("/tasks/task/", new TaskHandler(manager));
@@ -42,5 +63,6 @@ public class HttpTaskServer {
 
     public void stop() {
         httpServer.stop(3);
+        executor.shutdown();
     }
 }
\ No newline at end of file
@@ -1,18 +1,50 @@
 package http;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import exception.ManagerException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static http.Config.PORTS.KV;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * <h3>Постман: <a href="https://www.getpostman.com/collections/a83b61d9e1c81c10575c">getpostman.com</a></h3>
+ * <p>Кроме одиночных ключей ({@value #SAVE_PATH}/{key}, {@value #LOAD_PATH}/{key}) сервер принимает пакеты:
+ * POST {@value #SAVE_BATCH_PATH} с JSON-объектом {"ключ": "значение", ...} сохраняет все пары одним запросом,
+ * ключи со значением null в том же пакете удаляются (пакет с пустым ключом или значением отклоняется целиком), POST {@value #LOAD_BATCH_PATH} с JSON-массивом
+ * ключей возвращает JSON-объект найденных пар.</p>
+ * <p>Ответ {@value #LOAD_PATH}/{key} несёт заголовок ETag - хеш значения; запрос с тем же ETag
+ * в If-None-Match получает 304 без тела. {@value #LOAD_BATCH_PATH} принимает и JSON-объект
+ * {"ключ": "ETag или пустая строка", ...} и отвечает объектом {"ключ": {"etag": ..., "value": ...}}:
+ * у ключей с совпавшим ETag значения нет. ETag в пакете есть только у значений от {@value #GZIP_MIN_BYTES}
+ * байт: короткое значение после сжатия занимает не больше своего ETag. Тела запросов с Content-Encoding: gzip распаковываются,
+ * ответы от {@value #GZIP_MIN_BYTES} байт сжимаются, если клиент прислал Accept-Encoding: gzip.</p>
+ * <p>Данные хранит {@link KVStorage}: по умолчанию {@link MemoryKVStorage}, для сохранения между
+ * перезапусками - {@link LogKVStorage}. Запросы обрабатывает пул из {@code threads} потоков.</p>
  */
 public class KVServer {
     public static final String PROTOCOL = "http://";
@@ -23,16 +55,146 @@ public class KVServer {
     public static final String REGISTER_PATH = "/register";
     public static final String SAVE_PATH = "/save";
     public static final String LOAD_PATH = "/load";
+    public static final String SAVE_BATCH_PATH = "/save-batch";
+    public static final String LOAD_BATCH_PATH = "/load-batch";
+    public static final int GZIP_MIN_BYTES = 1024;
+    private static final Gson gson = new Gson();
+    private static final Type PAIRS = new TypeToken<Map<String, String>>() {
+    }.getType();
+    private static final Type KEYS = new TypeToken<List<String>>() {
+    }.getType();
+    private static final Type KEY_ETAGS = new TypeToken<Map<String, String>>() {
+    }.getType();
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
     private final String apiToken;
     private final HttpServer server;
-    private final Map<String, String> data = new HashMap<>();
+    private final ExecutorService executor;
+    private final KVStorage data;
+    private final AtomicLong notModified = new AtomicLong();
 
     public KVServer() throws IOException {
+        this(new MemoryKVStorage(), DEFAULT_THREADS);
+    }
+
+    /**
+     * @param storage хранилище; закрывается при остановке сервера
+     * @param threads количество потоков обработки запросов
+     */
+    public KVServer(KVStorage storage, int threads) throws IOException {
+        if (threads < 1) {
+            throw new ManagerException("Количество потоков сервера должно быть больше нуля");
+        }
         apiToken = generateApiToken();
+        data = storage;
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "kv-server");
+            thread.setDaemon(true);
+            return thread;
+        });
         server = HttpServer.create(new InetSocketAddress(HOSTNAME, KV_PORT), 0);
+        server.setExecutor(executor);
         server.createContext(REGISTER_PATH, this::register);
         server.createContext(SAVE_PATH, this::save);
         server.createContext(LOAD_PATH, this::load);
+        server.createContext(SAVE_BATCH_PATH, this::saveBatch);
+        server.createContext(LOAD_BATCH_PATH, this::loadBatch);
+    }
+
+    private void saveBatch(HttpExchange httpExchange) throws IOException {
+        try {
+            System.out.println("\n" + SAVE_BATCH_PATH);
+            if (!hasAuth(httpExchange)) {
+                System.out.println("▒ Запрос не авторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                httpExchange.sendResponseHeaders(403, 0);
+                return;
+            }
+            if (!"POST".equals(httpExchange.getRequestMethod())) {
+                System.out.println(SAVE_BATCH_PATH + " ждёт POST-запрос, а получил: " + httpExchange.getRequestMethod());
+                httpExchange.sendResponseHeaders(405, 0);
+                return;
+            }
+            Map<String, String> values;
+            try {
+                values = gson.fromJson(readText(httpExchange), PAIRS);
+            } catch (JsonParseException e) {
+                values = null;
+            }
+            if (values == null || values.isEmpty() || values.entrySet().stream().anyMatch(entry ->
+                    entry.getKey().isEmpty() || entry.getValue() != null && entry.getValue().isEmpty())) {
+                System.out.println("▒ Пакет для сохранения пустой или содержит пустой ключ или значение");
+                httpExchange.sendResponseHeaders(400, 0);
+                return;
+            }
+            Map<String, String> saved = new LinkedHashMap<>();
+            List<String> removed = new ArrayList<>();
+            values.forEach((key, value) -> {
+                if (value == null) {
+                    removed.add(key);
+                } else {
+                    saved.put(key, value);
+                }
+            });
+            data.putAll(saved, removed);
+            System.out.println("▒ Сохранено ключей: " + saved.size() + ", удалено: " + removed.size());
+            httpExchange.sendResponseHeaders(200, 0);
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    private void loadBatch(HttpExchange httpExchange) throws IOException {
+        try {
+            System.out.println("\n" + LOAD_BATCH_PATH);
+            if (!hasAuth(httpExchange)) {
+                System.out.println("▓ The query is not authorized, " +
+                        "you need the query API_TOKEN parameter with the API-key value");
+                httpExchange.sendResponseHeaders(403, 0);
+                return;
+            }
+            if (!"POST".equals(httpExchange.getRequestMethod())) {
+                System.out.println(LOAD_BATCH_PATH + " waits for the POST-request, but got "
+                        + httpExchange.getRequestMethod());
+                httpExchange.sendResponseHeaders(405, 0);
+                return;
+            }
+            JsonElement request;
+            try {
+                request = JsonParser.parseString(readText(httpExchange));
+            } catch (JsonParseException e) {
+                request = null;
+            }
+            if (request != null && request.isJsonArray()) {
+                List<String> keys = gson.fromJson(request, KEYS);
+                Map<String, String> found = data.getAll(keys);
+                sendText(httpExchange, gson.toJson(found));
+                System.out.println("▓ Sent " + found.size() + " of " + keys.size() + " keys");
+            } else if (request != null && request.isJsonObject()) {
+                Map<String, String> etags = gson.fromJson(request, KEY_ETAGS);
+                Map<String, Versioned> found = new LinkedHashMap<>();
+                int unchanged = 0;
+                for (Map.Entry<String, String> entry : data.getAll(etags.keySet()).entrySet()) {
+                    if (entry.getValue().length() < GZIP_MIN_BYTES) {
+                        found.put(entry.getKey(), new Versioned(null, entry.getValue()));
+                        continue;
+                    }
+                    String etag = etag(entry.getValue());
+                    if (etag.equals(etags.get(entry.getKey()))) {
+                        found.put(entry.getKey(), new Versioned(etag, null));
+                        unchanged++;
+                        notModified.incrementAndGet();
+                    } else {
+                        found.put(entry.getKey(), new Versioned(etag, entry.getValue()));
+                    }
+                }
+                sendText(httpExchange, gson.toJson(found));
+                System.out.println("▓ Sent " + found.size() + " of " + etags.size() + " keys, not modified " + unchanged);
+            } else {
+                System.out.println("▓ Keys to load are expected as a JSON array or object in the request body");
+                httpExchange.sendResponseHeaders(400, 0);
+            }
+        } finally {
+            httpExchange.close();
+        }
     }
 
     private void load(HttpExchange httpExchange) throws IOException {
@@ -51,15 +213,22 @@ public class KVServer {
                     httpExchange.sendResponseHeaders(400, 0);
                     return;
                 }
-                if (data.get(key) == null) {
+                String response = data.get(key);
+                if (response == null) {
                     System.out.println("▓ Cannot get the data for the '" + key + "' key, no data\t" + KVServer.this);
                     httpExchange.sendResponseHeaders(404, 0);
                     return;
                 }
-                String response = data.get(key);
+                String etag = etag(response);
+                httpExchange.getResponseHeaders().add("ETag", etag);
+                if (etag.equals(httpExchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    System.out.println("▓ The value for the key '" + key + "' has not been modified");
+                    notModified.incrementAndGet();
+                    httpExchange.sendResponseHeaders(304, -1);
+                    return;
+                }
                 sendText(httpExchange, response);
                 System.out.println("▓ The value for the key '" + key + "' has been successfully sent in response to the request!");
-                httpExchange.sendResponseHeaders(200, 0);
             } else {
                 System.out.println(LOAD_PATH + " waits for the GET-request, but got " + httpExchange.getRequestMethod());
                 httpExchange.sendResponseHeaders(405, 0);
@@ -125,9 +294,18 @@ public class KVServer {
 
     public void stop() {
         server.stop(0);
+        executor.shutdown();
+        data.close();
         System.out.println("▓ На " + KV_PORT + " порту сервер остановлен!");
     }
 
+    /**
+     * @return сколько значений отдано без тела по совпавшему ETag: ответы 304 и элементы пакета без значения
+     */
+    long notModified() {
+        return notModified.get();
+    }
+
     private String generateApiToken() {
         return System.currentTimeMillis() + "";
     }
@@ -138,13 +316,58 @@ public class KVServer {
     }
 
     protected String readText(HttpExchange httpExchange) throws IOException {
-        return new String(httpExchange.getRequestBody().readAllBytes(), UTF_8);
+        InputStream body = httpExchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(httpExchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = new GZIPInputStream(body);
+        }
+        return new String(body.readAllBytes(), UTF_8);
     }
 
     protected void sendText(HttpExchange httpExchange, String text) throws IOException {
         byte[] resp = text.getBytes(UTF_8);
         httpExchange.getResponseHeaders().add("Content-Type", "application/json");
+        httpExchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        String accepted = httpExchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (resp.length >= GZIP_MIN_BYTES && accepted != null && accepted.contains("gzip")) {
+            resp = gzip(resp);
+            httpExchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
         httpExchange.sendResponseHeaders(200, resp.length);
         httpExchange.getResponseBody().write(resp);
     }
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * ETag значения: первые 16 байт SHA-256 в Base64, в кавычках по синтаксису HTTP.
+     * Зависит только от значения, поэтому не меняется после перезапуска сервера.
+     */
+    static String etag(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(UTF_8));
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new ManagerException(e);
+        }
+    }
+
+    /**
+     * Значение ключа в ответе {@value #LOAD_BATCH_PATH} на запрос с ETag; value - null, если ETag совпал,
+     * etag - null у короткого значения
+     */
+    static final class Versioned {
+        final String etag;
+        final String value;
+
+        Versioned(String etag, String value) {
+            this.etag = etag;
+            this.value = value;
+        }
+    }
 }
\ No newline at end of file
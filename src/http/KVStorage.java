@@ -0,0 +1,35 @@
+package http;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранилище ключей {@link KVServer}: {@link MemoryKVStorage} или {@link LogKVStorage}.
+ * <p>Методы вызываются из потоков сервера параллельно. Пакет {@link #putAll} применяется целиком:
+ * {@link #getAll} видит его полностью или не видит совсем. Пакет и сохраняет, и удаляет ключи:
+ * ключ, указанный в обоих списках, удаляется.</p>
+ */
+public interface KVStorage extends AutoCloseable {
+
+  String get(String key); // Значение ключа или null
+
+  Map<String, String> getAll(Collection<String> keys); // Найденные ключи в порядке запроса
+
+  void putAll(Map<String, String> values, Collection<String> removed); // Сохранение и удаление пакета ключей
+
+  default void putAll(Map<String, String> values) { // Сохранение пакета ключей
+    putAll(values, List.of());
+  }
+
+  default void put(String key, String value) { // Сохранение одного ключа
+    putAll(Map.of(key, value));
+  }
+
+  default void remove(String key) { // Удаление одного ключа
+    putAll(Map.of(), List.of(key));
+  }
+
+  @Override
+  void close(); // Освобождение ресурсов при остановке сервера
+}
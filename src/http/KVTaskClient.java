@@ -1,31 +1,79 @@
 package http;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import exception.ManagerException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 import static http.KVServer.*;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Клиент {@link KVServer}.
+ * <p>Один {@link HttpClient} живёт столько же, сколько клиент: соединения с сервером переиспользуются
+ * между запросами. Каждый запрос ограничен таймаутом, заданным при создании. Асинхронные методы
+ * ({@code ...Async}) не ждут ответа, поэтому независимые запросы можно отправить параллельно;
+ * ошибка завершает {@link CompletableFuture} исключением {@link ManagerException}.</p>
+ * <p>Тела от {@link KVServer#GZIP_MIN_BYTES} байт отправляются сжатыми, сжатые ответы распаковываются.
+ * Значения, для которых сервер прислал ETag, запоминаются: повторная загрузка того же ключа отправляет ETag,
+ * и неизменившееся значение берётся из памяти клиента без передачи по сети.</p>
+ */
 public class KVTaskClient {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Gson gson = new Gson();
+    private static final Gson batchGson = new GsonBuilder().serializeNulls().create();
+    private static final Type VERSIONED = new TypeToken<Map<String, KVServer.Versioned>>() {
+    }.getType();
+    private static final BodyHandler<String> TEXT = info -> BodySubscribers.mapping(BodySubscribers.ofByteArray(),
+            bytes -> decode(bytes, "gzip".equalsIgnoreCase(info.headers().firstValue("Content-Encoding").orElse(""))));
+
+    private final HttpClient client;
+    private final Duration timeout;
     private final String apiToken;
+    private final Map<String, KVServer.Versioned> loaded = new ConcurrentHashMap<>();
 
     public KVTaskClient() throws IOException, InterruptedException {
-        URI uri = URI.create(KV_HOST + REGISTER_PATH);
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout таймаут подключения и ответа на каждый запрос
+     */
+    public KVTaskClient(Duration timeout) throws IOException, InterruptedException {
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
 
         HttpRequest request = HttpRequest.newBuilder()
                 .GET()
-                .uri(uri)
+                .uri(URI.create(KV_HOST + REGISTER_PATH))
+                .timeout(timeout)
                 .header("Content-Type", "application/json")
                 .build();
 
-        HttpClient client = HttpClient.newHttpClient();
         HttpResponse<String> response = client.send(request, //send throws IOException, InterruptedException
                 BodyHandlers.ofString());
         if (response.statusCode() == 200) {
@@ -36,49 +84,205 @@ public class KVTaskClient {
     }
 
     public void put(String key, String json) {
-        URI uri = URI.create(KV_HOST + SAVE_PATH + "/" + key + "?API_TOKEN=" + apiToken);
+        send(post(SAVE_PATH + "/" + key, json), KVTaskClient::saved);
+    }
 
-        HttpRequest.BodyPublisher body = BodyPublishers.ofString(json);
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(body)
-                .uri(uri)
-                .header("Content-Type", "application/json")
-                .build();
+    public CompletableFuture<Void> putAsync(String key, String json) {
+        return sendAsync(post(SAVE_PATH + "/" + key, json), KVTaskClient::saved);
+    }
 
-        HttpClient client = HttpClient.newHttpClient();
-        try {
-            HttpResponse<String> response = client.send(request,
-                    BodyHandlers.ofString(UTF_8));
-            if (response.statusCode() != 200) {
-                System.out.println("Не удалось сохранить данные");
-            }
-        } catch (IOException | InterruptedException e) {
-            throw new ManagerException("Во время POST-запроса по url произошла ошибка.");
+    /**
+     * Сохранение нескольких ключей одним запросом: сервер принимает пакет целиком или отклоняет его
+     *
+     * @throws ManagerException если сервер не сохранил пакет
+     */
+    public void putAll(Map<String, String> values) {
+        putAll(values, List.of());
+    }
+
+    /**
+     * Сохранение и удаление ключей одним запросом: удаляемые ключи передаются в пакете со значением null
+     *
+     * @param values  сохраняемые ключи
+     * @param removed удаляемые ключи
+     * @throws ManagerException если сервер не сохранил пакет
+     */
+    public void putAll(Map<String, String> values, Collection<String> removed) {
+        send(post(SAVE_BATCH_PATH, batch(values, removed)), response -> savedAll(response, removed));
+    }
+
+    public CompletableFuture<Void> putAllAsync(Map<String, String> values) {
+        return putAllAsync(values, List.of());
+    }
+
+    public CompletableFuture<Void> putAllAsync(Map<String, String> values, Collection<String> removed) {
+        return sendAsync(post(SAVE_BATCH_PATH, batch(values, removed)), response -> savedAll(response, removed));
+    }
+
+    private static String batch(Map<String, String> values, Collection<String> removed) {
+        if (removed.isEmpty()) {
+            return gson.toJson(values);
+        }
+        Map<String, String> pairs = new LinkedHashMap<>(values);
+        for (String key : removed) {
+            pairs.put(key, null);
         }
+        return batchGson.toJson(pairs);
+    }
+
+    /**
+     * Загрузка нескольких ключей одним запросом
+     *
+     * @return значения найденных ключей; ключей, которых на сервере нет, в ответе нет
+     */
+    public Map<String, String> loadAll(Collection<String> keys) {
+        return send(loadAllRequest(keys), response -> loadedAll(keys, response));
+    }
+
+    public CompletableFuture<Map<String, String>> loadAllAsync(Collection<String> keys) {
+        return sendAsync(loadAllRequest(keys), response -> loadedAll(keys, response));
     }
 
+    /**
+     * @return значение ключа или null, если ключа на сервере нет
+     */
     public String load(String key) {
-        URI uri = URI.create(KV_HOST + LOAD_PATH + "/" + key + "?API_TOKEN=" + apiToken);
+        return send(loadRequest(key), response -> loaded(key, response));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .uri(uri)
+    public CompletableFuture<String> loadAsync(String key) {
+        return sendAsync(loadRequest(key), response -> loaded(key, response));
+    }
+
+    private HttpRequest loadRequest(String key) {
+        HttpRequest.Builder builder = builder(LOAD_PATH + "/" + key).GET();
+        KVServer.Versioned cached = loaded.get(key);
+        if (cached != null) {
+            builder.header("If-None-Match", cached.etag);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Запрос пакета с ETag запомненных значений; для незагруженных ключей ETag пустой
+     */
+    private HttpRequest loadAllRequest(Collection<String> keys) {
+        Map<String, String> etags = new LinkedHashMap<>();
+        for (String key : keys) {
+            KVServer.Versioned cached = loaded.get(key);
+            etags.put(key, cached == null ? "" : cached.etag);
+        }
+        return post(LOAD_BATCH_PATH, gson.toJson(etags));
+    }
+
+    private HttpRequest post(String path, String body) {
+        byte[] bytes = body.getBytes(UTF_8);
+        HttpRequest.Builder builder = builder(path);
+        if (bytes.length >= GZIP_MIN_BYTES) {
+            try {
+                bytes = KVServer.gzip(bytes);
+            } catch (IOException e) {
+                throw new ManagerException("Не удалось сжать тело запроса", e);
+            }
+            builder.header("Content-Encoding", "gzip");
+        }
+        return builder.POST(BodyPublishers.ofByteArray(bytes)).build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(KV_HOST + path + "?API_TOKEN=" + apiToken))
+                .timeout(timeout)
                 .header("Content-Type", "application/json")
-                .build();
+                .header("Accept-Encoding", "gzip");
+    }
 
-        HttpClient client = HttpClient.newHttpClient();
+    private <T> T send(HttpRequest request, Function<HttpResponse<String>, T> result) {
         try {
-            HttpResponse<String> response = client.send(request,
-                    BodyHandlers.ofString(UTF_8)
-            );
-            if (response.statusCode() == 200) {
-                return response.body();
+            return result.apply(client.send(request, TEXT));
+        } catch (IOException | InterruptedException e) {
+            throw new ManagerException("Во время " + request.method() + "-запроса по url произошла ошибка.");
+        }
+    }
+
+    private <T> CompletableFuture<T> sendAsync(HttpRequest request, Function<HttpResponse<String>, T> result) {
+        return client.sendAsync(request, TEXT)
+                .handle((response, e) -> {
+                    if (e != null) {
+                        throw new ManagerException("Во время " + request.method() + "-запроса по url произошла ошибка.");
+                    }
+                    return result.apply(response);
+                });
+    }
+
+    private static Void saved(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            System.out.println("Не удалось сохранить данные");
+        }
+        return null;
+    }
+
+    private Void savedAll(HttpResponse<String> response, Collection<String> removed) {
+        if (response.statusCode() != 200) {
+            throw new ManagerException("Не удалось сохранить данные, код ответа " + response.statusCode());
+        }
+        for (String key : removed) {
+            loaded.remove(key);
+        }
+        return null;
+    }
+
+    private String loaded(String key, HttpResponse<String> response) {
+        if (response.statusCode() == 200) {
+            response.headers().firstValue("ETag")
+                    .ifPresent(etag -> loaded.put(key, new KVServer.Versioned(etag, response.body())));
+            return response.body();
+        } else if (response.statusCode() == 304 && loaded.containsKey(key)) {
+            return loaded.get(key).value;
+        } else if (response.statusCode() == 404) {
+            loaded.remove(key);
+            return null;
+        } else {
+            throw new ManagerException("Не удалось загрузить данные, код ответа " + response.statusCode());
+        }
+    }
+
+    private Map<String, String> loadedAll(Collection<String> keys, HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new ManagerException("Не удалось загрузить данные, код ответа " + response.statusCode());
+        }
+        Map<String, KVServer.Versioned> versions = gson.fromJson(response.body(), VERSIONED);
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : keys) {
+            KVServer.Versioned version = versions.get(key);
+            if (version == null) {
+                loaded.remove(key);
+            } else if (version.value != null) {
+                if (version.etag == null) {
+                    loaded.remove(key);
+                } else {
+                    loaded.put(key, version);
+                }
+                values.put(key, version.value);
             } else {
-                System.out.println("Не удалось загрузить данные");
-                return "Не удалось загрузить данные";
+                KVServer.Versioned cached = loaded.get(key);
+                if (cached == null || !cached.etag.equals(version.etag)) {
+                    throw new ManagerException("Сервер не прислал значение ключа " + key);
+                }
+                values.put(key, cached.value);
             }
-        } catch (IOException | InterruptedException e) {
-            throw new ManagerException("Во время GET-запроса по url произошла ошибка.");
+        }
+        return values;
+    }
+
+    private static String decode(byte[] bytes, boolean gzip) {
+        if (!gzip) {
+            return new String(bytes, UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), UTF_8);
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось распаковать ответ сервера", e);
         }
     }
 }
@@ -0,0 +1,436 @@
+package http;
+
+import exception.ManagerException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Хранилище на диске в виде журнала (log-structured): каждый пакет {@link #putAll} дописывается
+ * в конец файла одной записью и сбрасывается на диск до возврата из метода. В памяти - только индекс
+ * "ключ -> положение значения в файле", значения читаются с диска.
+ * <p>Запись: длина тела, CRC32 тела, тело (количество пар, затем длина и байты UTF-8 ключа и значения).
+ * Удаление ключа - пара с длиной значения -1 без байтов значения (tombstone): при чтении журнала она
+ * убирает ключ из индекса.
+ * При открытии журнал читается с начала; запись, оборванная сбоем, и всё после неё отрезаются,
+ * поэтому пакет после перезапуска виден целиком или не виден совсем.</p>
+ * <p>Перезаписанные и удалённые значения и сами удаления остаются в файле. Когда файл больше {@code minCompactBytes}
+ * и устаревшие данные занимают больше половины, фоновый поток переписывает только действующие значения
+ * в новый файл, не останавливая запись; затем под блокировкой дописывает в него пакеты, пришедшие
+ * за время сжатия, и атомарно подменяет журнал.</p>
+ */
+public class LogKVStorage implements KVStorage {
+    public static final long MIN_COMPACT_BYTES = 1 << 20;
+    private static final int HEADER = 8;
+    private static final int COMPACT_BATCH = 1024;
+    private static final int TOMBSTONE = -1;
+
+    private final Path path;
+    private final Path compactPath;
+    private final long minCompactBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kv-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FileChannel channel;
+    private Index index = new Index();
+    private long size;
+    private boolean closed;
+
+    public LogKVStorage(String fileName) {
+        this(Paths.get(fileName), MIN_COMPACT_BYTES);
+    }
+
+    /**
+     * @param path            файл журнала; создаётся, если его нет
+     * @param minCompactBytes размер файла, до которого журнал не сжимается
+     */
+    public LogKVStorage(Path path, long minCompactBytes) {
+        this.path = path;
+        this.compactPath = Paths.get(path + ".compact");
+        this.minCompactBytes = minCompactBytes;
+        try {
+            Files.deleteIfExists(compactPath);
+            channel = FileChannel.open(path, CREATE, READ, WRITE);
+            long length = channel.size();
+            size = scan(channel, 0, length, index);
+            if (size < length) {
+                System.out.println("▓ Журнал " + path + " оборван на " + size + " байте, хвост отрезан");
+                channel.truncate(size);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось открыть журнал " + path, e);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Entry entry = index.entries.get(key);
+            return entry == null ? null : read(channel, entry);
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось прочитать журнал " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (String key : keys) {
+                Entry entry = index.entries.get(key);
+                if (entry != null) {
+                    found.put(key, read(channel, entry));
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось прочитать журнал " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<String, String> values, Collection<String> removed) {
+        if (values.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Map<String, String> pairs = new LinkedHashMap<>(values);
+        for (String key : removed) {
+            pairs.put(key, null);
+        }
+        Record record = new Record(pairs);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            size = record.write(channel, size, index);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось дописать журнал " + path, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (needsCompaction() && compacting.compareAndSet(false, true)) {
+            try {
+                compactor.execute(this::compact);
+            } catch (RejectedExecutionException e) {
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Остановка: ждёт идущее сжатие и закрывает файл
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerException("Не удалось закрыть журнал " + path, e);
+        } finally {
+            lock.writeLock().unlock();
+            compactor.shutdown();
+        }
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return размер файла журнала в байтах
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return !closed && size >= minCompactBytes && index.liveBytes < size / 2;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сжатие: действующие значения снимка индекса копируются в новый файл без блокировки (старый файл
+     * до снимка не меняется), пакеты после снимка дописываются как есть под блокировкой записи.
+     */
+    private void compact() {
+        try {
+            Map<String, Entry> snapshot;
+            FileChannel source;
+            long end;
+            lock.readLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                snapshot = new HashMap<>(index.entries);
+                source = channel;
+                end = size;
+            } finally {
+                lock.readLock().unlock();
+            }
+            FileChannel target = FileChannel.open(compactPath, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+            boolean swapped = false;
+            try {
+                Index compacted = new Index();
+                long position = 0;
+                Map<String, String> chunk = new LinkedHashMap<>();
+                for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+                    chunk.put(entry.getKey(), read(source, entry.getValue()));
+                    if (chunk.size() == COMPACT_BATCH) {
+                        position = new Record(chunk).write(target, position, compacted);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    position = new Record(chunk).write(target, position, compacted);
+                }
+
+                lock.writeLock().lock();
+                try {
+                    if (closed) {
+                        return;
+                    }
+                    for (long copied = 0; copied < size - end; ) {
+                        copied += source.transferTo(end + copied, size - end - copied, target.position(position + copied));
+                    }
+                    long compactedSize = position + size - end;
+                    scan(target, position, compactedSize, compacted);
+                    target.force(true);
+                    Files.move(compactPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+                    System.out.println("░ Журнал " + path + " сжат: " + size + " -> " + compactedSize + " байт");
+                    channel = target;
+                    index = compacted;
+                    size = compactedSize;
+                    swapped = true;
+                    source.close();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                if (!swapped) {
+                    target.close();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("▓ Сжатие журнала " + path + " не удалось: " + e.getMessage());
+            try {
+                Files.deleteIfExists(compactPath);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new ManagerException("Журнал " + path + " закрыт");
+        }
+    }
+
+    /**
+     * Чтение записей журнала с from до to в индекс
+     *
+     * @return конец последней целой записи
+     */
+    private static long scan(FileChannel channel, long from, long to, Index index) throws IOException {
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (position + HEADER <= to) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length < Integer.BYTES || position + HEADER + length > to) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(channel, body, position + HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                break;
+            }
+            long bodyStart = position + HEADER;
+            body.flip();
+            for (int count = body.getInt(); count > 0; count--) {
+                byte[] key = new byte[body.getInt()];
+                body.get(key);
+                int valueLength = body.getInt();
+                if (valueLength == TOMBSTONE) {
+                    index.remove(new String(key, UTF_8));
+                    continue;
+                }
+                index.put(new String(key, UTF_8), new Entry(bodyStart + body.position(), valueLength, key.length));
+                body.position(body.position() + valueLength);
+            }
+            position = bodyStart + length;
+        }
+        return position;
+    }
+
+    private static String read(FileChannel channel, Entry entry) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(entry.valueLength);
+        readFully(channel, value, entry.valueOffset);
+        return new String(value.array(), UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла");
+            }
+        }
+    }
+
+    /**
+     * Индекс журнала и объём действующих пар в байтах
+     */
+    private static final class Index {
+        private final Map<String, Entry> entries = new HashMap<>();
+        private long liveBytes;
+
+        private void put(String key, Entry entry) {
+            Entry old = entries.put(key, entry);
+            liveBytes += entry.bytes - (old == null ? 0 : old.bytes);
+        }
+
+        private void remove(String key) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                liveBytes -= old.bytes;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long valueOffset;
+        private final int valueLength;
+        private final int bytes;
+
+        private Entry(long valueOffset, int valueLength, int keyLength) {
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.bytes = 2 * Integer.BYTES + keyLength + valueLength;
+        }
+    }
+
+    /**
+     * Закодированная запись пакета: тело и смещения значений в нём; значение null - удаление ключа
+     */
+    private static final class Record {
+        private final byte[] body;
+        private final String[] keys;
+        private final int[] keyLengths;
+        private final int[] valueOffsets;
+        private final int[] valueLengths;
+        private final int crc;
+
+        private Record(Map<String, String> values) {
+            keys = new String[values.size()];
+            keyLengths = new int[keys.length];
+            valueOffsets = new int[keys.length];
+            valueLengths = new int[keys.length];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(keys.length);
+                int i = 0;
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    byte[] key = entry.getKey().getBytes(UTF_8);
+                    out.writeInt(key.length);
+                    out.write(key);
+                    keys[i] = entry.getKey();
+                    keyLengths[i] = key.length;
+                    if (entry.getValue() == null) {
+                        out.writeInt(TOMBSTONE);
+                        valueLengths[i] = TOMBSTONE;
+                    } else {
+                        byte[] value = entry.getValue().getBytes(UTF_8);
+                        out.writeInt(value.length);
+                        valueOffsets[i] = out.size();
+                        valueLengths[i] = value.length;
+                        out.write(value);
+                    }
+                    i++;
+                }
+            } catch (IOException e) {
+                throw new ManagerException("Не удалось закодировать пакет", e);
+            }
+            body = bytes.toByteArray();
+            CRC32 checksum = new CRC32();
+            checksum.update(body);
+            crc = (int) checksum.getValue();
+        }
+
+        /**
+         * Запись в файл с позиции position и обновление индекса
+         *
+         * @return позиция за записью
+         */
+        private long write(FileChannel channel, long position, Index index) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER + body.length);
+            buffer.putInt(body.length).putInt(crc).put(body).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            long bodyStart = position + HEADER;
+            for (int i = 0; i < keys.length; i++) {
+                if (valueLengths[i] == TOMBSTONE) {
+                    index.remove(keys[i]);
+                } else {
+                    index.put(keys[i], new Entry(bodyStart + valueOffsets[i], valueLengths[i], keyLengths[i]));
+                }
+            }
+            return bodyStart + body.length;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package http;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище в памяти: данные теряются при остановке процесса.
+ * <p>Одиночное чтение идёт без блокировки; пакетные чтение и запись разделяют блокировку чтения-записи,
+ * чтобы пакет был виден целиком.</p>
+ */
+public class MemoryKVStorage implements KVStorage {
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public String get(String key) {
+        return data.get(key);
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String key : keys) {
+                String value = data.get(key);
+                if (value != null) {
+                    found.put(key, value);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<String, String> values, Collection<String> removed) {
+        lock.writeLock().lock();
+        try {
+            data.putAll(values);
+            for (String key : removed) {
+                data.remove(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -12,6 +12,7 @@ import utils.LocalDateTimeAdapter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -42,6 +43,16 @@ public class EpicHandler implements HttpHandler {
                     String jsonString = gson.toJson(taskManager.getAllEpics());
                     System.out.println("GET EPICS: " + jsonString);
                     response = gson.toJson(jsonString);
+                } else if (Paging.isPaged(query)) {
+                    try {
+                        int limit = Paging.limit(query);
+                        List<Epic> page = taskManager.getEpics(Paging.cursor(query), limit);
+                        Paging.setNextCursor(exchange, page, limit);
+                        response = gson.toJson(gson.toJson(page));
+                        statusCode = 200;
+                    } catch (IllegalArgumentException e) {
+                        response = e.getMessage();
+                    }
                 } else {
                     try {
                         int id = Integer.parseInt(query.substring(query.indexOf("id=") + 3));
@@ -5,11 +5,15 @@ import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import manager.task.TaskManager;
+import tasks.Status;
+import tasks.Task;
 import utils.LocalDateTimeAdapter;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -17,6 +21,9 @@ public class OwnerHandler implements HttpHandler {
     private final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .create();
+    private static final String STATUS = "status";
+    private static final String FROM = "from";
+    private static final String TO = "to";
     private final TaskManager taskManager;
 
     public OwnerHandler(TaskManager taskManager) {
@@ -31,7 +38,28 @@ public class OwnerHandler implements HttpHandler {
 
         System.out.println("Обрабатывается запрос " + path + " с методом " + method);
 
-        if ("GET".equals(method)) {
+        if ("GET".equals(method) && isFiltered(path)) {
+            try {
+                int limit = Paging.limit(path);
+                List<Task> page = taskManager.getPrioritizedTasks(status(path), time(path, FROM), time(path, TO),
+                        Paging.position(path), limit);
+                Paging.setNextPosition(exchange, page, limit);
+                writeResponse(gson.toJson(page), exchange, 200);
+            } catch (IllegalArgumentException e) {
+                writeResponse(e.getMessage(), exchange, 400);
+            } catch (DateTimeParseException e) {
+                writeResponse("Неверный формат времени " + e.getParsedString(), exchange, 400);
+            }
+        } else if ("GET".equals(method) && Paging.isPaged(path)) {
+            try {
+                int limit = Paging.limit(path);
+                List<Task> page = taskManager.getPrioritizedTasks(Paging.position(path), limit);
+                Paging.setNextPosition(exchange, page, limit);
+                writeResponse(gson.toJson(page), exchange, 200);
+            } catch (IllegalArgumentException e) {
+                writeResponse(e.getMessage(), exchange, 400);
+            }
+        } else if ("GET".equals(method)) {
             response = gson.toJson(taskManager.getPrioritizedTasks());
             writeResponse(response, exchange, 200);
         } else {
@@ -39,6 +67,35 @@ public class OwnerHandler implements HttpHandler {
         }
     }
 
+    /**
+     * @return true - в запросе есть выборка по статусу или времени начала
+     */
+    private static boolean isFiltered(String query) {
+        return query != null && (Paging.param(query, STATUS) != null
+                || Paging.param(query, FROM) != null
+                || Paging.param(query, TO) != null);
+    }
+
+    /**
+     * @throws IllegalArgumentException если статус неизвестен
+     */
+    private static Status status(String query) {
+        String value = Paging.param(query, STATUS);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Status.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный статус " + value);
+        }
+    }
+
+    private static LocalDateTime time(String query, String name) {
+        String value = Paging.param(query, name);
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+
     private void writeResponse(String body, HttpExchange exchange, int code) throws IOException {
         byte[] responseBody = body.getBytes(UTF_8);
         exchange.sendResponseHeaders(code, responseBody.length);
@@ -0,0 +1,106 @@
+package http.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.task.Pages;
+import tasks.Task;
+
+import java.util.List;
+
+/**
+ * Параметры постраничного запроса списка: {@code ?limit=&cursor=}.
+ * <p>cursor - id последней полученной задачи (по умолчанию 0 - с начала), у списка приоритета -
+ * положение последней полученной задачи ({@link Pages.Position}, три числа через точку; по умолчанию - с начала),
+ * limit - размер страницы (по умолчанию {@value #DEFAULT_LIMIT}, не больше {@value #MAX_LIMIT}).
+ * Тело ответа - та же форма, что у полного списка; если за страницей могут быть ещё задачи,
+ * курсор следующей страницы передаётся в заголовке {@value #NEXT_CURSOR}.</p>
+ * <p>Выборка из списка приоритета по статусу и времени ({@code /tasks/?status=&from=&to=}) отдаётся
+ * только страницами: без limit - по {@value #DEFAULT_LIMIT} задач.</p>
+ */
+final class Paging {
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = Pages.STREAM_PAGE;
+    private static final String LIMIT = "limit";
+    private static final String CURSOR = "cursor";
+
+    private Paging() {
+    }
+
+    /**
+     * @return true - в запросе есть limit или cursor
+     */
+    static boolean isPaged(String query) {
+        return query != null && (param(query, LIMIT) != null || param(query, CURSOR) != null);
+    }
+
+    /**
+     * @throws IllegalArgumentException если limit не число или вне диапазона
+     */
+    static int limit(String query) {
+        String value = param(query, LIMIT);
+        if (value == null) {
+            return DEFAULT_LIMIT;
+        }
+        int limit = parse(value, LIMIT);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * @throws IllegalArgumentException если cursor не число
+     */
+    static int cursor(String query) {
+        String value = param(query, CURSOR);
+        return value == null ? 0 : parse(value, CURSOR);
+    }
+
+    /**
+     * @return положение из cursor или null - с начала
+     * @throws IllegalArgumentException если cursor не положение
+     */
+    static Pages.Position position(String query) {
+        String value = param(query, CURSOR);
+        return value == null ? null : Pages.Position.parse(value);
+    }
+
+    /**
+     * Заголовок с положением последней задачи страницы списка приоритета, если страница заполнена целиком
+     */
+    static void setNextPosition(HttpExchange exchange, List<Task> page, int limit) {
+        if (page.size() == limit) {
+            exchange.getResponseHeaders().set(NEXT_CURSOR, Pages.Position.of(page.get(page.size() - 1)).toString());
+        }
+    }
+
+    /**
+     * Заголовок с курсором следующей страницы, если страница заполнена целиком
+     */
+    static void setNextCursor(HttpExchange exchange, List<? extends Task> page, int limit) {
+        if (page.size() == limit) {
+            exchange.getResponseHeaders().set(NEXT_CURSOR, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+    }
+
+    private static int parse(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверный формат " + name);
+        }
+    }
+
+    /**
+     * @return значение параметра запроса или null
+     */
+    static String param(String query, String name) {
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return pair.substring(separator + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -12,6 +12,7 @@ import utils.LocalDateTimeAdapter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -40,6 +41,16 @@ public class SubTaskHandler implements HttpHandler {
                 if (query == null) {
                     statusCode = 200;
                     response = gson.toJson(taskManager.getAllSubTasks());
+                } else if (Paging.isPaged(query)) {
+                    try {
+                        int limit = Paging.limit(query);
+                        List<SubTask> page = taskManager.getSubTasks(Paging.cursor(query), limit);
+                        Paging.setNextCursor(exchange, page, limit);
+                        response = gson.toJson(page);
+                        statusCode = 200;
+                    } catch (IllegalArgumentException e) {
+                        response = e.getMessage();
+                    }
                 } else {
                     try {
                         int id = Integer.parseInt(query.substring(query.indexOf("id=") + 3));
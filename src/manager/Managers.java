@@ -1,10 +1,14 @@
 package manager;
 
 import http.HttpTaskManager;
+import manager.history.ConcurrentHistoryManager;
 import manager.history.HistoryManager;
 import manager.history.InMemoryHistoryManager;
+import manager.task.ColumnarTaskManager;
+import manager.task.ConcurrentTaskManager;
 import manager.task.FileBackedTasksManager;
 import manager.task.InMemoryTaskManager;
+import manager.task.OffHeapTaskManager;
 import manager.task.TaskManager;
 
 import java.io.IOException;
@@ -27,7 +31,30 @@ public class Managers {
         return new InMemoryTaskManager(historyManager);
     }
 
+    public static TaskManager getConcurrentTaskManager(HistoryManager historyManager) {
+        return new ConcurrentTaskManager(historyManager);
+    }
+
+    public static TaskManager getColumnarTaskManager(HistoryManager historyManager) {
+        return new ColumnarTaskManager(historyManager);
+    }
+
+    public static TaskManager getOffHeapTaskManager(HistoryManager historyManager) {
+        return new OffHeapTaskManager(historyManager);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    /**
+     * @param capacity максимальное количество задач в истории; самые давние просмотры вытесняются
+     */
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
 }
@@ -0,0 +1,156 @@
+package manager.history;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасная история просмотров без общей блокировки.
+ * <p>Каждый просмотр получает номер из общего счётчика. Порядок просмотров - отсортированная по номеру
+ * {@link ConcurrentSkipListMap}, рядом карта id -> последний просмотр задачи. Повторный просмотр
+ * кладёт новую запись и убирает прежнюю - ту, которую вернула карта последних просмотров,
+ * поэтому каждую вытесненную запись удаляет ровно один поток. Пока просмотр записывается,
+ * в порядке могут быть две записи одной задачи: {@link #getHistory()} выдаёт только ту,
+ * что сейчас последняя для своего id.</p>
+ * <p>История ограничена ёмкостью: при переполнении вытесняется самый давний просмотр - первая запись порядка.</p>
+ */
+public class ConcurrentHistoryManager implements HistoryManager {
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, View> order = new ConcurrentSkipListMap<>();
+    private final Map<Integer, View> latest = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public ConcurrentHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальное количество задач в истории
+     */
+    public ConcurrentHistoryManager(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть больше нуля: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Добавление задачи в конец истории; прежний просмотр задачи удаляется
+     *
+     * @param task задача
+     */
+    @Override
+    public void add(Task task) {
+        View view = new View(sequence.incrementAndGet(), task);
+        order.put(view.sequence, view);
+        View previous = latest.put(task.getId(), view);
+        if (previous != null) {
+            order.remove(previous.sequence, previous);
+        }
+        while (latest.size() > capacity && evictOldest()) {
+            // вытеснение до ёмкости
+        }
+    }
+
+    /**
+     * Вытеснение самого давнего просмотра. Запись, которая ещё записывается другим потоком
+     * (уже в порядке, но ещё не последняя для своего id), не трогается - её вытеснит следующий просмотр.
+     *
+     * @return true - просмотр вытеснен
+     */
+    private boolean evictOldest() {
+        Map.Entry<Long, View> oldest = order.firstEntry();
+        if (oldest == null) {
+            return false;
+        }
+        View view = oldest.getValue();
+        if (!latest.remove(view.task.getId(), view)) {
+            return false;
+        }
+        order.remove(view.sequence, view);
+        return true;
+    }
+
+    /**
+     * Удаление задачи из истории
+     *
+     * @param id номер задачи
+     */
+    @Override
+    public void remove(int id) {
+        View view = latest.remove(id);
+        if (view != null) {
+            order.remove(view.sequence, view);
+        }
+    }
+
+    /**
+     * Задачи в порядке последнего просмотра. Обход слабо согласован: просмотры,
+     * записанные во время обхода, могут попасть или не попасть в результат.
+     *
+     * @return Список объектов TASK
+     */
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>();
+        for (View view : order.values()) {
+            if (latest.get(view.task.getId()) == view) {
+                history.add(view.task);
+            }
+        }
+        return history;
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        List<Task> page = new ArrayList<>();
+        int skipped = 0;
+        for (View view : order.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (latest.get(view.task.getId()) == view && skipped++ >= offset) {
+                page.add(view.task);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Последние просмотры: обход порядка с конца, только limit записей
+     */
+    @Override
+    public List<Task> getRecent(int limit) {
+        List<Task> recent = new ArrayList<>();
+        for (View view : order.descendingMap().values()) {
+            if (recent.size() >= limit) {
+                break;
+            }
+            if (latest.get(view.task.getId()) == view) {
+                recent.add(view.task);
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Просмотр задачи с номером в общем порядке просмотров
+     */
+    private static final class View {
+        private final long sequence;
+        private final Task task;
+
+        private View(long sequence, Task task) {
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+}
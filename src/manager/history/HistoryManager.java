@@ -8,4 +8,28 @@ public interface HistoryManager {
     void add(Task task);
     void remove(int id);
     List<Task> getHistory();
-}
\ No newline at end of file
+
+    /**
+     * Страница истории в порядке просмотра
+     *
+     * @param offset сколько самых давних просмотров пропустить
+     * @param limit  размер страницы
+     * @return не больше limit задач
+     */
+    default List<Task> getHistory(int offset, int limit) {
+        List<Task> history = getHistory();
+        int from = Math.min(Math.max(offset, 0), history.size());
+        return history.subList(from, (int) Math.min(history.size(), (long) from + Math.max(limit, 0)));
+    }
+
+    /**
+     * Последние просмотры в порядке просмотра
+     *
+     * @param limit сколько последних просмотров вернуть
+     * @return не больше limit задач, самая недавняя - последняя
+     */
+    default List<Task> getRecent(int limit) {
+        List<Task> history = getHistory();
+        return history.subList(Math.max(0, history.size() - Math.max(limit, 0)), history.size());
+    }
+}
@@ -1,6 +1,7 @@
 package manager.history;
 
 import tasks.Task;
+import utils.IntMap;
 
 import java.util.*;
 
@@ -8,13 +9,30 @@ import java.util.*;
 /**
  * Ключом будет id задачи, просмотр которой требуется удалить
  * Значение — место просмотра этой задачи в списке (узел связного списка).
+ * <p>История ограничена ёмкостью: при переполнении вытесняется самый давний просмотр (голова списка), O(1).</p>
  */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 1_000;
 
-    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final IntMap<Node> nodes = new IntMap<>();
+    private final int capacity;
     private Node begin;
     private Node end;
 
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальное количество задач в истории
+     */
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть больше нуля: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
     /**
      * Элемент реализации двусвязного списка задач.
      * linkLast будет добавлять задачу в конец этого списка.
@@ -44,10 +62,10 @@ public class InMemoryHistoryManager implements HistoryManager {
             nodes.remove(node.task.getId());
             Node NodePrev = node.prev;
             Node NodeNext = node.next;
-            if (node.equals(begin)) {
+            if (node == begin) {
                 begin = node.next;
             }
-            if (node.equals(end)) {
+            if (node == end) {
                 end = node.prev;
             }
             if (NodePrev != null) {
@@ -90,6 +108,41 @@ public class InMemoryHistoryManager implements HistoryManager {
         int taskId = task.getId();
         remove(taskId);
         linkLast(task);
+        if (nodes.size() > capacity) {
+            removeNode(begin);
+        }
+    }
+
+    /**
+     * Страница истории: пропуск offset узлов с головы списка, без копирования всей истории
+     */
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        List<Task> page = new ArrayList<>(Math.max(0, Math.min(limit, nodes.size())));
+        Node node = begin;
+        for (int i = 0; i < offset && node != null; i++) {
+            node = node.next;
+        }
+        while (node != null && page.size() < limit) {
+            page.add(node.task);
+            node = node.next;
+        }
+        return page;
+    }
+
+    /**
+     * Последние просмотры: обход с хвоста списка, только limit узлов
+     */
+    @Override
+    public List<Task> getRecent(int limit) {
+        int size = Math.max(0, Math.min(limit, nodes.size()));
+        Task[] recent = new Task[size];
+        Node node = end;
+        for (int i = size - 1; i >= 0; i--) {
+            recent[i] = node.task;
+            node = node.prev;
+        }
+        return new ArrayList<>(Arrays.asList(recent));
     }
 
     /**
@@ -101,9 +154,9 @@ public class InMemoryHistoryManager implements HistoryManager {
      */
     @Override
     public void remove(int id) {
-        if (nodes.containsKey(id)) {
-            removeNode(nodes.get(id));
-            nodes.remove(id);
+        Node node = nodes.get(id);
+        if (node != null) {
+            removeNode(node);
         }
     }
 
@@ -117,18 +170,5 @@ public class InMemoryHistoryManager implements HistoryManager {
             this.task = task;
             this.next = next;
         }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Node node = (Node) o;
-            return Objects.equals(prev, node.prev) && task.equals(node.task) && Objects.equals(next, node.next);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(prev, task, next);
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,269 @@
+package manager.task;
+
+import exception.ManagerException;
+import tasks.Epic;
+import tasks.SubTask;
+import tasks.Task;
+import tasks.TypeTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static tasks.TypeTask.*;
+
+/**
+ * Пакет изменений для {@link TaskManager#batch(Batch)}: добавления, обновления и удаления
+ * в порядке вызова методов.
+ * <p>Пакет применяется целиком или не применяется совсем. До первого изменения менеджера пакет
+ * проверяется на текущем состоянии: существование эпиков для подзадач и пересечения по времени
+ * итогового набора задач - одной проверкой, а не после каждой операции. Ошибка проверки
+ * ({@link ManagerException} с номером операции) оставляет менеджер без изменений.</p>
+ * <p>Id новым задачам выдаются при применении, поэтому подзадачу эпика, добавляемого в том же пакете,
+ * нужно добавлять через {@link #addSubTask(SubTask, Epic)}. Обновления и удаления, как и методы
+ * менеджера, ничего не делают, если задачи с таким id нет.</p>
+ */
+public final class Batch {
+    private static final Task REMOVED = new Task();
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    public Batch addTask(Task task) {
+        return add(Action.ADD, TASK, task, null);
+    }
+
+    public Batch addEpic(Epic epic) {
+        return add(Action.ADD, EPIC, epic, null);
+    }
+
+    /**
+     * Добавление подзадачи к уже существующему эпику (id эпика задан в подзадаче)
+     */
+    public Batch addSubTask(SubTask subTask) {
+        return add(Action.ADD, SUBTASK, subTask, null);
+    }
+
+    /**
+     * Добавление подзадачи к эпику, добавленному раньше в этом пакете или уже существующему:
+     * id эпика записывается в подзадачу при применении пакета
+     */
+    public Batch addSubTask(SubTask subTask, Epic epic) {
+        if (epic == null) {
+            throw new ManagerException("Сначала создайте главную задачу.");
+        }
+        return add(Action.ADD, SUBTASK, subTask, epic);
+    }
+
+    public Batch updateTask(Task task) {
+        return add(Action.UPDATE, TASK, task, null);
+    }
+
+    public Batch updateEpic(Epic epic) {
+        return add(Action.UPDATE, EPIC, epic, null);
+    }
+
+    public Batch updateSubTask(SubTask subTask) {
+        return add(Action.UPDATE, SUBTASK, subTask, null);
+    }
+
+    public Batch deleteTask(int id) {
+        return delete(TASK, id);
+    }
+
+    public Batch deleteEpic(int id) {
+        return delete(EPIC, id);
+    }
+
+    public Batch deleteSubTask(int id) {
+        return delete(SUBTASK, id);
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    private Batch add(Action action, TypeTask type, Task task, Epic epic) {
+        operations.add(new Operation(action, type, task, 0, epic));
+        return this;
+    }
+
+    private Batch delete(TypeTask type, int id) {
+        operations.add(new Operation(Action.DELETE, type, null, id, null));
+        return this;
+    }
+
+    /**
+     * Проверка пакета без изменения менеджера: операции проигрываются поверх текущего состояния
+     * в таблице изменений (id -> итоговая версия задачи или удалена), новым задачам выдаются
+     * временные отрицательные id. Затем итоговые задачи проверяются на пересечения между собой
+     * и со списком приоритета, из которого исключены изменённые и удалённые задачи.
+     * <p>Пошаговая проверка нужна менеджеру, который применяет пакет обычными методами: каждая операция
+     * сразу меняет копию списка приоритета, и пересечение ищется после каждого шага, как при применении.</p>
+     *
+     * @param find     поиск текущей задачи, эпика или подзадачи по id без записи в историю
+     * @param timeline текущий список приоритета; при пошаговой проверке - копия, которая меняется
+     * @param stepwise true - проверять пересечения после каждой операции
+     * @throws ManagerException если пакет нельзя применить целиком
+     */
+    void validate(IntFunction<Task> find, PrioritizedTasks timeline, boolean stepwise) {
+        Map<Integer, Task> changes = new HashMap<>();
+        Map<Epic, Integer> addedEpics = new IdentityHashMap<>();
+        Map<Integer, List<Integer>> addedSubTasks = new HashMap<>();
+        int nextId = -1;
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            Task task = operation.task;
+            try {
+                switch (operation.action) {
+                    case ADD:
+                        if (task == null) {
+                            throw new ManagerException("Задача не создана");
+                        }
+                        int id = nextId--;
+                        if (operation.type == EPIC) {
+                            addedEpics.put((Epic) task, id);
+                        } else if (operation.type == SUBTASK) {
+                            int epicId = operation.epic == null
+                                    ? ((SubTask) task).getEpicId()
+                                    : addedEpics.getOrDefault(operation.epic, operation.epic.getId());
+                            if (!exists(epicId, EPIC, changes, find)) {
+                                throw new ManagerException("Сначала создайте главную задачу.");
+                            }
+                            addedSubTasks.computeIfAbsent(epicId, key -> new ArrayList<>()).add(id);
+                        }
+                        if (stepwise && operation.type != EPIC) {
+                            timeline.add(task, id);
+                        }
+                        changes.put(id, task);
+                        break;
+                    case UPDATE:
+                        if (task == null || !exists(task.getId(), operation.type, changes, find)) {
+                            break;
+                        }
+                        if (operation.type == SUBTASK && !exists(((SubTask) task).getEpicId(), EPIC, changes, find)) {
+                            throw new ManagerException("Сначала создайте главную задачу.");
+                        }
+                        if (operation.type != EPIC) {
+                            if (stepwise) {
+                                timeline.update(task);
+                            }
+                            changes.put(task.getId(), task);
+                        }
+                        break;
+                    default:
+                        if (!exists(operation.id, operation.type, changes, find)) {
+                            break;
+                        }
+                        changes.put(operation.id, REMOVED);
+                        if (stepwise) {
+                            timeline.remove(operation.id);
+                        }
+                        if (operation.type == EPIC) {
+                            Task epic = find.apply(operation.id);
+                            List<Integer> children = new ArrayList<>(addedSubTasks.getOrDefault(operation.id, List.of()));
+                            if (epic instanceof Epic) {
+                                children.addAll(((Epic) epic).getSubTaskIds());
+                            }
+                            for (int child : children) {
+                                if (exists(child, SUBTASK, changes, find)) {
+                                    changes.put(child, REMOVED);
+                                    if (stepwise) {
+                                        timeline.remove(child);
+                                    }
+                                }
+                            }
+                        }
+                }
+            } catch (ManagerException e) {
+                throw new ManagerException("Пакет не применён, операция " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (stepwise) {
+            return;
+        }
+        List<Task> timed = new ArrayList<>();
+        for (Task task : changes.values()) {
+            if (task != REMOVED && task.getType() != EPIC) {
+                timed.add(task);
+            }
+        }
+        try {
+            timeline.checkAll(timed, changes::containsKey);
+        } catch (ManagerException e) {
+            throw new ManagerException("Пакет не применён: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Применение проверенного пакета методами менеджера по порядку
+     */
+    void applyTo(TaskManager manager) {
+        for (Operation operation : operations) {
+            switch (operation.action) {
+                case ADD:
+                    if (operation.type == TASK) {
+                        manager.addTask(operation.task);
+                    } else if (operation.type == EPIC) {
+                        manager.addEpic((Epic) operation.task);
+                    } else {
+                        SubTask subTask = (SubTask) operation.task;
+                        if (operation.epic != null) {
+                            subTask.setEpicId(operation.epic.getId());
+                        }
+                        manager.addSubTask(subTask);
+                    }
+                    break;
+                case UPDATE:
+                    if (operation.type == TASK) {
+                        manager.updateTask(operation.task);
+                    } else if (operation.type == EPIC) {
+                        manager.updateEpic((Epic) operation.task);
+                    } else {
+                        manager.updateSubTask((SubTask) operation.task);
+                    }
+                    break;
+                default:
+                    if (operation.type == TASK) {
+                        manager.deleteTask(operation.id);
+                    } else if (operation.type == EPIC) {
+                        manager.deleteEpic(operation.id);
+                    } else {
+                        manager.deleteSubTask(operation.id);
+                    }
+            }
+        }
+    }
+
+    /**
+     * @return задача с таким id и типом есть с учётом уже проигранных операций пакета
+     */
+    private static boolean exists(int id, TypeTask type, Map<Integer, Task> changes, IntFunction<Task> find) {
+        Task task = changes.containsKey(id) ? changes.get(id) : find.apply(id);
+        return task != null && task != REMOVED && task.getType() == type;
+    }
+
+    private enum Action {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    private static final class Operation {
+        private final Action action;
+        private final TypeTask type;
+        private final Task task;
+        private final int id;
+        private final Epic epic;
+
+        private Operation(Action action, TypeTask type, Task task, int id, Epic epic) {
+            this.action = action;
+            this.type = type;
+            this.task = task;
+            this.id = id;
+            this.epic = epic;
+        }
+    }
+}
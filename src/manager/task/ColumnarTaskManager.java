@@ -0,0 +1,517 @@
+package manager.task;
+
+import exception.ManagerException;
+import manager.history.HistoryManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.SubTask;
+import tasks.Task;
+import utils.IntMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Хранение задач и подзадач по столбцам (struct-of-arrays) - для больших досок.
+ * <p>Вместо объекта на задачу - параллельные массивы примитивов, строка массива {@code id - 1}:
+ * тип, статус (порядковый номер), начало в минутах эпохи (UTC), длительность в минутах, id эпика,
+ * заголовок и описание ({@link TaskColumns}). По умолчанию столбцы лежат в куче ({@link HeapColumns}),
+ * {@link OffHeapTaskManager} держит их вне кучи.
+ * Объекты {@link Task} и {@link SubTask} создаются только на границе API - при чтении;
+ * изменения попадают в хранилище через add/update, как и в {@link InMemoryTaskManager}.</p>
+ * <p>Эпиков на доске немного, и их расчётные поля видит вызывающая сторона, поэтому эпики
+ * хранятся объектами, а счётчики статусов и крайние времена их подзадач - в отдельной сводке.</p>
+ * <p>Список приоритета - {@link TimeSlots}, тоже без объекта на задачу.</p>
+ * <p>Ограничения: время хранится с точностью до минуты (как в снимках CSV),
+ * строки удалённых задач не переиспользуются - id выдаются по возрастанию.</p>
+ */
+public class ColumnarTaskManager implements TaskManager {
+    private static final byte FREE = TaskColumns.FREE;
+    private static final byte TASK = TaskColumns.TASK;
+    private static final byte SUBTASK = TaskColumns.SUBTASK;
+    private static final byte EPIC = TaskColumns.EPIC;
+    private static final Status[] STATUSES = Status.values();
+
+    private final HistoryManager historyManager;
+    private final TaskColumns columns;
+    private final IntMap<Epic> epics = new IntMap<>();
+    private final IntMap<Rollup> rollups = new IntMap<>();
+    private final TimeSlots timeSlots = new TimeSlots();
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this(historyManager, new HeapColumns());
+    }
+
+    ColumnarTaskManager(HistoryManager historyManager, TaskColumns columns) {
+        this.historyManager = historyManager;
+        this.columns = columns;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        List<Task> result = new ArrayList<>();
+        for (int row = 0; row < columns.rows(); row++) {
+            if (columns.type(row) == TASK) {
+                result.add(taskAt(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public List<SubTask> getAllSubTasks() {
+        List<SubTask> result = new ArrayList<>();
+        for (int row = 0; row < columns.rows(); row++) {
+            if (columns.type(row) == SUBTASK) {
+                result.add(subTaskAt(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (int row = 0; row < columns.rows(); row++) {
+            if (columns.type(row) == TASK) {
+                free(row);
+            }
+        }
+    }
+
+    /**
+     * Удаление всех главных задач вместе со всеми подзадачами.
+     */
+    @Override
+    public void deleteAllEpics() {
+        for (int id : epics.keys()) {
+            deleteEpic(id);
+        }
+    }
+
+    /**
+     * Удаление всех подзадач: эпики остаются без подзадач, статус NEW, время сброшено.
+     */
+    @Override
+    public void deleteAllSubTasks() {
+        for (Epic epic : epics.values()) {
+            for (int id : epic.getSubTaskIds()) {
+                free(id - 1);
+            }
+            epic.clearSubTasks();
+            Rollup rollup = rollups.get(epic.getId());
+            rollup.clear();
+            rollup.applyTo(this, epic);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return isRow(id, TASK) ? viewed(taskAt(id - 1)) : null;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(epics.get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return isRow(id, SUBTASK) ? viewed(subTaskAt(id - 1)) : null;
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        if (task == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        int row = columns.newRow();
+        task.setId(row + 1);
+        checkCrossing(task, minutes(task.getStartTime()), durationMinutes(task));
+        write(row, TASK, task, 0);
+        return task;
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        if (epic == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        int row = columns.newRow();
+        columns.write(row, EPIC, (byte) 0, 0, 0, 0, null, null);
+        epic.setId(row + 1);
+        epics.put(epic.getId(), epic);
+        rollups.put(epic.getId(), new Rollup());
+        return epic;
+    }
+
+    @Override
+    public SubTask addSubTask(SubTask subTask) {
+        if (subTask == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        Epic epic = epics.get(subTask.getEpicId());
+        if (epic == null) {
+            throw new ManagerException("Сначала создайте главную задачу.");
+        }
+        int row = columns.newRow();
+        subTask.setId(row + 1);
+        checkCrossing(subTask, minutes(subTask.getStartTime()), durationMinutes(subTask));
+        write(row, SUBTASK, subTask, subTask.getEpicId());
+        epic.getSubTaskIds().add(subTask.getId());
+        Rollup rollup = rollups.get(epic.getId());
+        rollup.count(this, row);
+        rollup.applyTo(this, epic);
+        return subTask;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task != null && isRow(task.getId(), TASK)) {
+            replace(task.getId() - 1, task);
+        }
+    }
+
+    /**
+     * Обновление Большой задачи.
+     * Если передан новый объект эпика, сводка пересчитывается по его списку подзадач.
+     */
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null || !epics.containsKey(epic.getId())) {
+            return;
+        }
+        Epic previous = epics.put(epic.getId(), epic);
+        if (previous != epic) {
+            List<Integer> subTaskIds = new ArrayList<>(epic.getSubTaskIds());
+            epic.clearSubTasks();
+            for (int id : subTaskIds) {
+                if (isRow(id, SUBTASK) && columns.epicId(id - 1) == epic.getId()) {
+                    epic.getSubTaskIds().add(id);
+                }
+            }
+            Rollup rollup = rollups.get(epic.getId());
+            rollup.recount(this, epic);
+            rollup.applyTo(this, epic);
+        }
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (subTask == null || !isRow(subTask.getId(), SUBTASK)) {
+            return;
+        }
+        int row = subTask.getId() - 1;
+        Epic epic = epics.get(columns.epicId(row));
+        Rollup rollup = rollups.get(epic.getId());
+        rollup.uncount(this, row);
+        try {
+            replace(row, subTask);
+        } finally {
+            rollup.count(this, row);
+            rollup.applyTo(this, epic);
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        if (isRow(id, TASK)) {
+            free(id - 1);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        Epic epic = epics.remove(id);
+        if (epic != null) {
+            for (int subTaskId : epic.getSubTaskIds()) {
+                free(subTaskId - 1);
+            }
+            rollups.remove(id);
+            columns.free(id - 1);
+            historyManager.remove(id);
+        }
+    }
+
+    @Override
+    public void deleteSubTask(int id) {
+        if (!isRow(id, SUBTASK)) {
+            return;
+        }
+        int row = id - 1;
+        Epic epic = epics.get(columns.epicId(row));
+        Rollup rollup = rollups.get(epic.getId());
+        rollup.uncount(this, row);
+        epic.removeSubtaskId(id);
+        free(row);
+        rollup.applyTo(this, epic);
+    }
+
+    @Override
+    public List<SubTask> getSubTasksByEpic(int epicId) {
+        List<SubTask> subTasksByEpic = new ArrayList<>();
+        Epic epic = getEpic(epicId);
+        if (epic != null) {
+            for (int id : epic.getSubTaskIds()) {
+                subTasksByEpic.add(subTaskAt(id - 1));
+            }
+        }
+        return subTasksByEpic;
+    }
+
+    /**
+     * Статус главной задачи по сводке её подзадач
+     */
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        Rollup rollup = rollups.get(epic.getId());
+        if (rollup != null && epics.get(epic.getId()) == epic) {
+            rollup.applyTo(this, epic);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(timeSlots.size());
+        timeSlots.forEach(id -> result.add(materialize(id - 1)));
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasks(int cursor, int limit) {
+        List<Task> page = new ArrayList<>();
+        for (int row : rowsAfter(cursor, limit, TASK)) {
+            page.add(taskAt(row));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Epic> getEpics(int cursor, int limit) {
+        List<Epic> page = new ArrayList<>();
+        for (int row : rowsAfter(cursor, limit, EPIC)) {
+            page.add(epics.get(row + 1));
+        }
+        return page;
+    }
+
+    @Override
+    public List<SubTask> getSubTasks(int cursor, int limit) {
+        List<SubTask> page = new ArrayList<>();
+        for (int row : rowsAfter(cursor, limit, SUBTASK)) {
+            page.add(subTaskAt(row));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(Pages.Position after, int limit) {
+        Pages.checkLimit(limit);
+        int[] ids;
+        if (after == null) {
+            ids = timeSlots.after(Long.MIN_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE, limit);
+        } else {
+            ids = timeSlots.after(Math.floorDiv(after.start(), 60), Math.floorDiv(after.end(), 60), after.id(), limit);
+        }
+        List<Task> page = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            page.add(materialize(id - 1));
+        }
+        return page;
+    }
+
+    /**
+     * Строки данного типа после строки курсора, по возрастанию id
+     */
+    private int[] rowsAfter(int cursor, int limit, byte type) {
+        Pages.checkLimit(limit);
+        int[] page = new int[Math.min(limit, 64)];
+        int count = 0;
+        for (int row = Math.max(cursor, 0); row < columns.rows() && count < limit; row++) {
+            if (columns.type(row) == type) {
+                if (count == page.length) {
+                    page = Arrays.copyOf(page, Math.min(limit, count * 2));
+                }
+                page[count++] = row;
+            }
+        }
+        return Arrays.copyOf(page, count);
+    }
+
+    private boolean isRow(int id, byte type) {
+        return id > 0 && id <= columns.rows() && columns.type(id - 1) == type;
+    }
+
+    private void write(int row, byte type, Task task, int epicId) {
+        columns.write(row, type, (byte) task.getStatus().ordinal(), minutes(task.getStartTime()),
+                durationMinutes(task), epicId, task.getTitle(), task.getDescription());
+        timeSlots.add(columns.start(row), end(row), row + 1);
+    }
+
+    /**
+     * Замена задачи в строке. Если новое время пересекается с другой задачей, строка не меняется.
+     * Эпик подзадачи не меняется.
+     */
+    private void replace(int row, Task task) {
+        long start = minutes(task.getStartTime());
+        int duration = durationMinutes(task);
+        timeSlots.remove(columns.start(row), end(row), row + 1);
+        try {
+            checkCrossing(task, start, duration);
+        } catch (ManagerException e) {
+            timeSlots.add(columns.start(row), end(row), row + 1);
+            throw e;
+        }
+        write(row, columns.type(row), task, columns.epicId(row));
+    }
+
+    private void checkCrossing(Task task, long start, int duration) {
+        int crossing = timeSlots.findCrossing(start, start + duration);
+        if (crossing != 0) {
+            throw new ManagerException("Task[" + task.getId() + "] overlaps Task["
+                    + materialize(crossing - 1) + "]");
+        }
+    }
+
+    /**
+     * Удаление задачи или подзадачи из столбцов, списка приоритета и истории.
+     * Связь с эпиком снимает вызывающая сторона.
+     */
+    private void free(int row) {
+        timeSlots.remove(columns.start(row), end(row), row + 1);
+        columns.free(row);
+        historyManager.remove(row + 1);
+    }
+
+    private Task materialize(int row) {
+        return columns.type(row) == SUBTASK ? subTaskAt(row) : taskAt(row);
+    }
+
+    private Task taskAt(int row) {
+        Task task = new Task(columns.title(row), columns.description(row), time(columns.start(row)),
+                Duration.ofMinutes(columns.duration(row)));
+        task.setId(row + 1);
+        task.setStatus(STATUSES[columns.status(row)]);
+        return task;
+    }
+
+    private SubTask subTaskAt(int row) {
+        SubTask subTask = new SubTask(columns.title(row), columns.description(row), time(columns.start(row)),
+                Duration.ofMinutes(columns.duration(row)), columns.epicId(row));
+        subTask.setId(row + 1);
+        subTask.setStatus(STATUSES[columns.status(row)]);
+        return subTask;
+    }
+
+    private long end(int row) {
+        return columns.start(row) + columns.duration(row);
+    }
+
+    private static long minutes(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime time(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static int durationMinutes(Task task) {
+        long minutes = task.getDuration().toMinutes();
+        if (minutes < 0 || minutes > Integer.MAX_VALUE) {
+            throw new ManagerException("Недопустимая длительность задачи: " + task.getDuration());
+        }
+        return (int) minutes;
+    }
+
+    /**
+     * Сводка подзадач эпика: счётчики статусов и крайние времена в минутах.
+     * Крайние значения при удалении не пересчитываются сразу: если удалена подзадача на краю,
+     * сводка помечается устаревшей и пересчитывается обходом подзадач эпика при следующем применении.
+     */
+    private static final class Rollup {
+        private final int[] statusCounters = new int[STATUSES.length];
+        private int count;
+        private long minStart;
+        private long maxEnd;
+        private boolean stale;
+
+        private Rollup() {
+            clear();
+        }
+
+        private void clear() {
+            Arrays.fill(statusCounters, 0);
+            count = 0;
+            minStart = Long.MAX_VALUE;
+            maxEnd = Long.MIN_VALUE;
+            stale = false;
+        }
+
+        private void count(ColumnarTaskManager store, int row) {
+            statusCounters[store.columns.status(row)]++;
+            count++;
+            minStart = Math.min(minStart, store.columns.start(row));
+            maxEnd = Math.max(maxEnd, store.end(row));
+        }
+
+        private void uncount(ColumnarTaskManager store, int row) {
+            statusCounters[store.columns.status(row)]--;
+            count--;
+            if (store.columns.start(row) == minStart || store.end(row) == maxEnd) {
+                stale = true;
+            }
+        }
+
+        private void recount(ColumnarTaskManager store, Epic epic) {
+            clear();
+            for (int id : epic.getSubTaskIds()) {
+                count(store, id - 1);
+            }
+        }
+
+        private void applyTo(ColumnarTaskManager store, Epic epic) {
+            if (stale) {
+                minStart = Long.MAX_VALUE;
+                maxEnd = Long.MIN_VALUE;
+                stale = false;
+                for (int id : epic.getSubTaskIds()) {
+                    minStart = Math.min(minStart, store.columns.start(id - 1));
+                    maxEnd = Math.max(maxEnd, store.end(id - 1));
+                }
+            }
+            if (count == statusCounters[Status.NEW.ordinal()]) {
+                epic.setStatus(Status.NEW);
+            } else if (count == statusCounters[Status.DONE.ordinal()]) {
+                epic.setStatus(Status.DONE);
+            } else {
+                epic.setStatus(Status.IN_PROGRESS);
+            }
+            if (count == 0) {
+                LocalDateTime nullTime = LocalDateTime.ofEpochSecond(0L, 0, ZoneOffset.UTC);
+                epic.setStartEndTime(nullTime, nullTime);
+            } else {
+                epic.setStartEndTime(time(minStart), time(maxEnd));
+            }
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package manager.task;
+
+import exception.ManagerException;
+import manager.history.ConcurrentHistoryManager;
+import manager.history.HistoryManager;
+import tasks.Epic;
+import tasks.SubTask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Потокобезопасное хранение задач всех типов в памяти: один экземпляр можно делить
+ * между обработчиками HTTP-сервера, работающего на пуле потоков.
+ * <ul>
+ *     <li>таблицы задач - {@link ConcurrentHashMap}, чтение без блокировок;</li>
+ *     <li>идентификаторы выдаёт {@link AtomicInteger};</li>
+ *     <li>изменения эпика и его подзадач выполняются под блокировкой полосы эпика (lock striping):
+ *     операции с разными эпиками не мешают друг другу, а список подзадач и расчётные поля эпика
+ *     меняются согласованно; задачи без эпика блокируют полосу своего id;</li>
+ *     <li>список приоритета - на {@link java.util.concurrent.ConcurrentSkipListMap}: читается без блокировки,
+ *     проверка пересечения и вставка выполняются под отдельной блокировкой списка,
+ *     которая берётся всегда последней.</li>
+ * </ul>
+ * История просмотров - {@link ConcurrentHistoryManager} без общей блокировки,
+ * любая другая реализация защищается своим монитором.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int LOCK_STRIPES = 64;
+
+    private final AtomicInteger generateId = new AtomicInteger(1);
+    private final HistoryManager historyManager;
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, SubTask> subtasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final PrioritizedTasks prioritizedTasks = PrioritizedTasks.concurrent();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param historyManager история просмотров; не потокобезопасная история
+     *                       (не {@link ConcurrentHistoryManager}) защищается общим монитором
+     */
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager instanceof ConcurrentHistoryManager
+                ? historyManager
+                : new SynchronizedHistory(historyManager);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Блокировка полосы: для подзадачи - полоса её эпика, для эпика и задачи - полоса своего id
+     *
+     * @param id идентификатор эпика или задачи
+     */
+    private Object lockFor(int id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public List<SubTask> getAllSubTasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    /**
+     * Удаление всех задач. Задачи, добавленные во время удаления, могут остаться.
+     */
+    @Override
+    public void deleteAllTasks() {
+        for (int id : tasks.keySet()) {
+            deleteTask(id);
+        }
+    }
+
+    /**
+     * Удаление всех главных задач вместе со всеми подзадачами.
+     */
+    @Override
+    public void deleteAllEpics() {
+        for (int id : epics.keySet()) {
+            deleteEpic(id);
+        }
+    }
+
+    /**
+     * Удаление всех подзадач: эпики остаются без подзадач, статус NEW, время сброшено.
+     */
+    @Override
+    public void deleteAllSubTasks() {
+        for (Epic epic : epics.values()) {
+            synchronized (lockFor(epic.getId())) {
+                for (int subTaskId : epic.getSubTaskIds()) {
+                    removeSubTask(subTaskId);
+                }
+                epic.clearSubTasks();
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
+            }
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(tasks, id, Task::getId);
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(epics, id, Epic::getId);
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return viewed(subtasks, id, SubTask::getEpicId);
+    }
+
+    /**
+     * Просмотр задачи с записью в историю под блокировкой той же полосы, что и у удаления:
+     * задача, удалённая между поиском и записью, в историю не попадает. Если задачу успели заменить,
+     * просмотр повторяется с новым экземпляром.
+     *
+     * @param table  таблица задач
+     * @param id     идентификатор задачи
+     * @param stripe полоса блокировки задачи: id эпика для подзадачи, свой id для эпика и задачи
+     * @return задача или null, если её нет
+     */
+    private <T extends Task> T viewed(Map<Integer, T> table, int id, ToIntFunction<T> stripe) {
+        T task = table.get(id);
+        while (task != null) {
+            synchronized (lockFor(stripe.applyAsInt(task))) {
+                T current = table.get(id);
+                if (current == task) {
+                    historyManager.add(task);
+                    return task;
+                }
+                task = current;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        if (task == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        task.setId(generateId.getAndIncrement());
+        synchronized (lockFor(task.getId())) {
+            addPrioritized(task);
+            tasks.put(task.getId(), task);
+        }
+        return task;
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        if (epic == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        epic.setId(generateId.getAndIncrement());
+        epics.put(epic.getId(), epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask addSubTask(SubTask subTask) {
+        if (subTask == null) {
+            throw new ManagerException("Задача не создана");
+        }
+        int epicId = subTask.getEpicId();
+        synchronized (lockFor(epicId)) {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                throw new ManagerException("Сначала создайте главную задачу.");
+            }
+            subTask.setId(generateId.getAndIncrement());
+            addPrioritized(subTask);
+            subtasks.put(subTask.getId(), subTask);
+            epic.putSubTask(subTask);
+            updateEpicStatus(epic);
+            updateEpicTime(epic);
+        }
+        return subTask;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task == null) {
+            return;
+        }
+        synchronized (lockFor(task.getId())) {
+            if (tasks.containsKey(task.getId())) {
+                updatePrioritized(task);
+                tasks.replace(task.getId(), task);
+            }
+        }
+    }
+
+    /**
+     * Обновление Большой задачи.
+     * Если передан новый объект эпика, его расчётные поля заполняются по его подзадачам.
+     */
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            return;
+        }
+        synchronized (lockFor(epic.getId())) {
+            Epic previous = epics.get(epic.getId());
+            if (previous != null) {
+                epics.replace(epic.getId(), epic);
+                if (previous != epic) {
+                    recountEpic(epic);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (subTask == null) {
+            return;
+        }
+        synchronized (lockFor(subTask.getEpicId())) {
+            Epic epic = epics.get(subTask.getEpicId());
+            if (epic != null && subtasks.containsKey(subTask.getId())) {
+                updatePrioritized(subTask);
+                subtasks.put(subTask.getId(), subTask);
+                epic.putSubTask(subTask);
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
+            }
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        synchronized (lockFor(id)) {
+            if (tasks.remove(id) != null) {
+                removePrioritized(id);
+                removeFromHistory(id);
+            }
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        synchronized (lockFor(id)) {
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                for (int subTaskId : epic.getSubTaskIds()) {
+                    removeSubTask(subTaskId);
+                }
+                removeFromHistory(id);
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubTask(int id) {
+        SubTask subTask = subtasks.get(id);
+        if (subTask == null) {
+            return;
+        }
+        synchronized (lockFor(subTask.getEpicId())) {
+            Epic epic = epics.get(subTask.getEpicId());
+            if (epic != null && subtasks.containsKey(id)) {
+                epic.removeSubtaskId(id);
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
+                removeSubTask(id);
+            }
+        }
+    }
+
+    /**
+     * Удаление подзадачи из таблицы, списка приоритета и истории. Вызывается под блокировкой полосы эпика.
+     */
+    private void removeSubTask(int id) {
+        subtasks.remove(id);
+        removePrioritized(id);
+        removeFromHistory(id);
+    }
+
+    private void removeFromHistory(int id) {
+        historyManager.remove(id);
+    }
+
+    @Override
+    public List<SubTask> getSubTasksByEpic(int epicId) {
+        List<SubTask> subTasksByEpic = new ArrayList<>();
+        synchronized (lockFor(epicId)) {
+            Epic epic = getEpic(epicId);
+            if (epic != null) {
+                for (int id : epic.getSubTaskIds()) {
+                    subTasksByEpic.add(subtasks.get(id));
+                }
+            }
+        }
+        return subTasksByEpic;
+    }
+
+    /**
+     * Проверить статус главной задачи по счётчикам статусов подзадач, которые ведёт сам эпик.
+     */
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        synchronized (lockFor(epic.getId())) {
+            if (epics.containsKey(epic.getId())) {
+                epic.setStatus(epic.calculateStatus());
+            }
+        }
+    }
+
+    /**
+     * Получение копии списка приоритетов без блокировки
+     *
+     * @return список приоритетов (копия)
+     */
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks.toList();
+    }
+
+    @Override
+    public List<Task> getTasks(int cursor, int limit) {
+        return Pages.byId(tasks, cursor, limit, generateId.get());
+    }
+
+    @Override
+    public List<Epic> getEpics(int cursor, int limit) {
+        return Pages.byId(epics, cursor, limit, generateId.get());
+    }
+
+    @Override
+    public List<SubTask> getSubTasks(int cursor, int limit) {
+        return Pages.byId(subtasks, cursor, limit, generateId.get());
+    }
+
+    /**
+     * Страница списка приоритета без блокировки (слабо согласованный обход)
+     */
+    @Override
+    public List<Task> getPrioritizedTasks(Pages.Position after, int limit) {
+        return prioritizedTasks.page(after, limit);
+    }
+
+    /**
+     * Поиск места под монитором списка приоритета; добавление в найденное место
+     * ({@link #addTaskToFreeSlot}) повторяет поиск, если место успели занять
+     */
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime earliest) {
+        synchronized (prioritizedTasks) {
+            return prioritizedTasks.findFreeSlot(duration, earliest);
+        }
+    }
+
+    /**
+     * Время эпика по крайним значениям, которые эпик хранит сам. Вызывается под блокировкой полосы эпика.
+     */
+    private void updateEpicTime(Epic epic) {
+        LocalDateTime startTime = epic.getSubTasksStartTime();
+        if (startTime == null) {
+            LocalDateTime nullTime = LocalDateTime.ofEpochSecond(0L, 0, ZoneOffset.UTC);
+            epic.setStartEndTime(nullTime, nullTime);
+        } else {
+            epic.setStartEndTime(startTime, epic.getSubTasksEndTime());
+        }
+    }
+
+    /**
+     * Заполнение расчётных полей эпика по списку его подзадач. Вызывается под блокировкой полосы эпика.
+     */
+    private void recountEpic(Epic epic) {
+        List<Integer> subTaskIds = new ArrayList<>(epic.getSubTaskIds());
+        epic.clearSubTasks();
+        for (int id : subTaskIds) {
+            SubTask subTask = subtasks.get(id);
+            if (subTask != null) {
+                epic.putSubTask(subTask);
+            }
+        }
+        epic.setStatus(epic.calculateStatus());
+        updateEpicTime(epic);
+    }
+
+    private void addPrioritized(Task task) {
+        synchronized (prioritizedTasks) {
+            prioritizedTasks.add(task);
+        }
+    }
+
+    private void updatePrioritized(Task task) {
+        synchronized (prioritizedTasks) {
+            prioritizedTasks.update(task);
+        }
+    }
+
+    private void removePrioritized(int id) {
+        synchronized (prioritizedTasks) {
+            prioritizedTasks.remove(id);
+        }
+    }
+
+    /**
+     * Однопоточная история под общим монитором
+     */
+    private static final class SynchronizedHistory implements HistoryManager {
+        private final HistoryManager history;
+
+        private SynchronizedHistory(HistoryManager history) {
+            this.history = history;
+        }
+
+        @Override
+        public synchronized void add(Task task) {
+            history.add(task);
+        }
+
+        @Override
+        public synchronized void remove(int id) {
+            history.remove(id);
+        }
+
+        @Override
+        public synchronized List<Task> getHistory() {
+            return history.getHistory();
+        }
+
+        @Override
+        public synchronized List<Task> getHistory(int offset, int limit) {
+            return history.getHistory(offset, limit);
+        }
+
+        @Override
+        public synchronized List<Task> getRecent(int limit) {
+            return history.getRecent(limit);
+        }
+    }
+}
@@ -2,120 +2,598 @@ package manager.task;
 
 import exception.ManagerException;
 import manager.history.HistoryManager;
+import manager.history.InMemoryHistoryManager;
 import tasks.Epic;
 import tasks.SubTask;
 import tasks.Task;
 import tasks.TypeTask;
+import utils.BinarySnapshot;
+import utils.CSVReader;
 import utils.CSVUtils;
+import utils.CSVWriter;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static tasks.TypeTask.*;
 
+/**
+ * Менеджер задач с сохранением в CSV-файл.
+ * <p>Два режима:</p>
+ * <ul>
+ *     <li>без журнала - полный снимок в CSV после каждой операции;</li>
+ *     <li>с журналом ({@link Journal}) - каждая операция дописывает одну запись в журнал,
+ *     полный снимок сохраняется только при компактизации. {@link #loadFromFile()} читает снимок
+ *     и проигрывает поверх него журнал.</li>
+ * </ul>
+ * <p>Снимок сохраняется в CSV или в компактном бинарном формате ({@link Format}),
+ * при загрузке формат определяется по заголовку файла.</p>
+ * <p>С {@link GroupCommit} сохранение в любом режиме откладывается и выполняется одно на группу операций,
+ * изменяющие методы менеджера синхронизированы с фоновым сохранением.</p>
+ * <p>Пакет изменений ({@link #batch(Batch)}) сохраняется один раз: одной группой записей журнала
+ * или одним снимком.</p>
+ */
 public class FileBackedTasksManager extends InMemoryTaskManager {
+    /**
+     * Формат файла снимка
+     */
+    public enum Format {
+        CSV,
+        /**
+         * {@link BinarySnapshot}
+         */
+        BINARY
+    }
+
     private final File file;
+    private final Format format;
+    private final Journal journal;
+    private final GroupCommit groupCommit;
+    private final List<String> pendingRecords = new ArrayList<>();
+    private boolean inBatch;
+    private boolean batchChanged;
     private static final String TASKS_CSV = "tasks.csv";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
     private static final String HEADER_LINE_TASKS = "id,type,name,status,description,startTime,duration,epicId";
     private static final String SEPARATOR_TASKS_HISTORY = "History";
+    private static final String SEPARATOR_RECORD = ",";
+    private static final String RECORD_PUT = "PUT";
+    private static final String RECORD_DELETE = "DEL";
+    private static final String RECORD_VIEW = "VIEW";
+    private static final String RECORD_CLEAR = "CLEAR";
 
     public FileBackedTasksManager(HistoryManager historyManager, File file){
-        super(historyManager);
-        this.file = file;
+        this(historyManager, file, null);
     }
 
     public FileBackedTasksManager(HistoryManager historyManager){
+        this(historyManager, new File(TASKS_CSV));
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param file           файл снимка
+     * @param journal        журнал операций; null - сохранять полный снимок после каждой операции
+     */
+    public FileBackedTasksManager(HistoryManager historyManager, File file, Journal journal) {
+        this(historyManager, file, journal, null);
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param groupCommit    групповое сохранение; null - сохранять после каждой операции
+     */
+    protected FileBackedTasksManager(HistoryManager historyManager, GroupCommit groupCommit) {
+        this(historyManager, new File(TASKS_CSV), null, groupCommit);
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param file           файл снимка
+     * @param journal        журнал операций; null - сохранять полный снимок
+     * @param groupCommit    групповое сохранение; null - сохранять после каждой операции
+     */
+    public FileBackedTasksManager(HistoryManager historyManager, File file, Journal journal,
+                                  GroupCommit groupCommit) {
+        this(historyManager, file, Format.CSV, journal, groupCommit);
+    }
+
+    /**
+     * @param historyManager история просмотров
+     * @param file           файл снимка
+     * @param format         формат сохранения снимка
+     * @param journal        журнал операций; null - сохранять полный снимок
+     * @param groupCommit    групповое сохранение; null - сохранять после каждой операции
+     */
+    public FileBackedTasksManager(HistoryManager historyManager, File file, Format format, Journal journal,
+                                  GroupCommit groupCommit) {
         super(historyManager);
-        this.file = new File(TASKS_CSV);
+        this.file = file;
+        this.format = format;
+        this.journal = journal;
+        this.groupCommit = groupCommit;
+        if (groupCommit != null) {
+            groupCommit.bind(this, this::flushPending);
+        }
+    }
+
+    /**
+     * Сохранение задач в файл снимка.
+     * Снимок пишется во временный файл рядом с основным, сбрасывается на диск и атомарно
+     * переименовывается поверх основного: при сбое во время записи остаётся прежний снимок.
+     * В режиме журнала снимок заменяет журнал ({@link #compact()}).
+     */
+    public void save() {
+        if (journal != null) {
+            compact();
+        } else {
+            writeSnapshot(file, format);
+        }
+    }
+
+    /**
+     * Конвертация снимка (формат источника определяется по заголовку) в снимок другого формата
+     *
+     * @param source файл снимка
+     * @param target файл результата
+     * @param format формат результата
+     */
+    public static void convert(File source, File target, Format format) {
+        FileBackedTasksManager manager = new FileBackedTasksManager(new InMemoryHistoryManager(), source);
+        manager.loadFromFile();
+        manager.writeSnapshot(target, format);
+    }
+
+    private void writeSnapshot(File target, Format format) {
+        moveIntoPlace(writeTemp(target, format), target);
+    }
+
+    /**
+     * Запись снимка во временный файл рядом с целевым со сбросом на диск
+     *
+     * @return временный файл с полным снимком
+     */
+    private File writeTemp(File target, Format format) {
+        File temp = temp(target);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            if (format == Format.BINARY) {
+                writeBinary(buffered);
+            } else {
+                writeCsv(buffered);
+            }
+            buffered.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка записи в файл " + target.getName());
+        }
+        return temp;
+    }
+
+    private static File temp(File target) {
+        return new File(target.getPath() + TEMP_SUFFIX);
+    }
+
+    private void writeCsv(OutputStream out) throws IOException {
+        Writer save = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CSVWriter csv = new CSVWriter(save);
+        csv.writeLine(HEADER_LINE_TASKS);
+        for (Task e : getAllTasks()) {
+            csv.writeTask(e);
+        }
+        for (Epic e : getAllEpics()) {
+            csv.writeTask(e);
+        }
+        for (SubTask e : getAllSubTasks()) {
+            csv.writeTask(e);
+        }
+
+        csv.writeLine(SEPARATOR_TASKS_HISTORY);
+        csv.writeIds(historyManager.getHistory());
+        save.flush();
     }
 
-    private void prepareFile() {
-        if (file.exists()) {
-            file.delete();
+    private void writeBinary(OutputStream out) throws IOException {
+        List<Task> all = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        all.addAll(tasks.values());
+        all.addAll(epics.values());
+        all.addAll(subtasks.values());
+        List<Integer> history = new ArrayList<>();
+        for (Task task : historyManager.getHistory()) {
+            history.add(task.getId());
         }
+        DataOutputStream data = new DataOutputStream(out);
+        BinarySnapshot.write(data, all, all.size(), history);
+        data.flush();
+    }
+
+    private void moveIntoPlace(File temp, File target) {
         try {
-            file.createNewFile();
+            try {
+                Files.move(temp.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
-            throw new ManagerException("Не удалось создать файл ");
+            throw new ManagerException("Ошибка записи в файл " + target.getName(), e);
         }
     }
 
     /**
-     * Сохранение задач в CSV-файл
+     * Загрузка задач из CSV-файла и проигрывание журнала, если он есть
      */
-    public void save() {
-        prepareFile();
-        try (FileWriter save = new FileWriter(this.file, StandardCharsets.UTF_8)){
-            save.write(HEADER_LINE_TASKS + '\n');
-            for (Task e : getAllTasks()) {
-                save.write(CSVUtils.toString(e));
-            }
-            for (Epic e : getAllEpics()) {
-                save.write(CSVUtils.toString(e));
+    public synchronized void loadFromFile() {
+        loadFromFile(null);
+    }
+
+    /**
+     * Загрузка с параллельным разбором CSV-снимка: файл делится на части по границам записей,
+     * части разбираются в пуле потоков, результаты раскладываются по таблицам одним проходом
+     * ({@link #restoreAll}). Бинарный снимок и журнал загружаются последовательно.
+     *
+     * @param pool пул для разбора частей; null - последовательная загрузка
+     */
+    public synchronized void loadFromFile(ForkJoinPool pool) {
+        if (journal != null) {
+            recoverCompaction();
+        }
+        if (journal == null || file.exists()) {
+            loadSnapshot(pool);
+        }
+        if (journal != null) {
+            replay(journal.readAll());
+        }
+    }
+
+    /**
+     * Завершение компактизации, прерванной сбоем. Отложенный журнал есть - значит, снимок был полностью
+     * записан во временный файл до откладывания журнала. Если временный файл остался, снимок ещё
+     * не заменён, и он переименовывается на место; иначе снимок уже заменён. В обоих случаях записи
+     * отложенного журнала входят в снимок, и журнал удаляется без проигрывания.
+     */
+    private void recoverCompaction() {
+        if (!journal.hasRotated()) {
+            return;
+        }
+        File temp = temp(file);
+        if (temp.exists()) {
+            moveIntoPlace(temp, file);
+        }
+        journal.dropRotated();
+    }
+
+    /**
+     * Загрузка задач из файла снимка (CSV или бинарного).
+     * Бинарный снимок разбирается прямо из отображённого в память файла ({@link FileChannel#map}),
+     * CSV - потоково через {@link CSVReader}, без построчного создания строк.
+     */
+    private void loadSnapshot(ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (BinarySnapshot.isBinary(mapped)) {
+                BinarySnapshot.read(mapped, this::restore, id -> historyManager.add(getTaskInMemory(id)));
+            } else if (pool != null) {
+                loadCsvInParallel(mapped, pool);
+            } else {
+                loadCsv(new CSVReader(Channels.newReader(channel, StandardCharsets.UTF_8)));
             }
-            for (SubTask e : getAllSubTasks()) {
-                save.write(CSVUtils.toString(e));
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка чтения из файла " + file.getName());
+        }
+    }
+
+    /**
+     * Загрузка задач в обход override-методов addTask, addSubTask, addEpics.
+     * Подзадачи привязываются к эпикам и попадают в список приоритета.
+     * После задач - строка-разделитель (или пустая строка) и строка истории.
+     *
+     * @param csv записи файла
+     */
+    private void loadCsv(CSVReader csv) {
+        if (!csv.next()) {
+            return;
+        }
+        while (csv.next() && !csv.isBlank() && !csv.contentEquals(SEPARATOR_TASKS_HISTORY)) {
+            restore(csv.readTask());
+        }
+        loadHistory(csv);
+    }
+
+    private void loadHistory(CSVReader csv) {
+        while (csv.next()) {
+            csv.readIds(id -> historyManager.add(getTaskInMemory(id)));
+        }
+    }
+
+    private void loadCsvInParallel(MappedByteBuffer mapped, ForkJoinPool pool) {
+        int chunkBytes = Math.max(MIN_CHUNK_BYTES, mapped.limit() / (pool.getParallelism() * 4 + 1));
+        int[] bounds = CSVReader.split(mapped, chunkBytes, SEPARATOR_TASKS_HISTORY);
+        List<ForkJoinTask<SnapshotChunk>> parts = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            boolean header = i == 0;
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            parts.add(pool.submit(() -> SnapshotChunk.parse(new CSVReader(decode(mapped, from, to)), header)));
+        }
+        List<Task> loadedTasks = new ArrayList<>();
+        List<Epic> loadedEpics = new ArrayList<>();
+        List<SubTask> loadedSubTasks = new ArrayList<>();
+        for (ForkJoinTask<SnapshotChunk> part : parts) {
+            SnapshotChunk chunk;
+            try {
+                chunk = part.join();
+            } catch (RuntimeException e) {
+                throw new ManagerException("Ошибка разбора файла " + file.getName(), e);
             }
+            loadedTasks.addAll(chunk.tasks);
+            loadedEpics.addAll(chunk.epics);
+            loadedSubTasks.addAll(chunk.subTasks);
+        }
+        restoreAll(loadedTasks, loadedEpics, loadedSubTasks);
+        CSVReader history = new CSVReader(decode(mapped, bounds[bounds.length - 1], mapped.limit()));
+        if (history.next()) {
+            loadHistory(history);
+        }
+    }
 
-            save.write(SEPARATOR_TASKS_HISTORY + '\n' + CSVUtils.historyToString(historyManager));
-        } catch (IOException e) {
-            throw new ManagerException("Ошибка записи в файл " + file.getName());
+    private static CharBuffer decode(MappedByteBuffer mapped, int from, int to) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(mapped.duplicate().position(from).limit(to));
+        } catch (CharacterCodingException e) {
+            throw new ManagerException("Ошибка кодировки в файле снимка", e);
         }
     }
 
     /**
-     * Загрузка задач из CSV-файла
+     * Задачи одной части CSV-снимка, разложенные по типам
      */
-    public void loadFromFile() {
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
-            String line;
-            boolean headerIsOver = false;
-            boolean historySeparatorIsOver = false;
-            while ((line = bufferedReader.readLine()) != null) {
-                if (!headerIsOver) {
-                    headerIsOver = true;
-                } else if (!historySeparatorIsOver && !line.isBlank() && !line.equals(SEPARATOR_TASKS_HISTORY)) {
-                    recoveredTasks(line);
-                } else if (!historySeparatorIsOver) {
-                    historySeparatorIsOver = true;
-                } else if (!line.isBlank()) {
-                    historyFromString(line);
+    private static final class SnapshotChunk {
+        private final List<Task> tasks = new ArrayList<>();
+        private final List<Epic> epics = new ArrayList<>();
+        private final List<SubTask> subTasks = new ArrayList<>();
+
+        static SnapshotChunk parse(CSVReader csv, boolean header) {
+            SnapshotChunk chunk = new SnapshotChunk();
+            if (header) {
+                csv.next();
+            }
+            while (csv.next()) {
+                Task task = csv.readTask();
+                if (task.getType() == EPIC) {
+                    chunk.epics.add((Epic) task);
+                } else if (task.getType() == SUBTASK) {
+                    chunk.subTasks.add((SubTask) task);
+                } else {
+                    chunk.tasks.add(task);
                 }
             }
-        } catch (IOException e) {
-            throw new ManagerException("Ошибка чтения из файла " + file.getName());
+            return chunk;
         }
     }
 
     /**
-     * Загрузка задач из строки файла в обход override-методов addTask, addSubTask, addEpics
-     * @param line строка файла
+     * Проигрывание записей журнала поверх загруженного снимка.
+     * Журнал содержит только записи после снимка: записи, вошедшие в снимок, к этому моменту
+     * удалены вместе с отложенным журналом ({@link #recoverCompaction()}).
+     * Недописанная последняя запись (сбой во время записи) отбрасывается.
+     *
+     * @param records записи журнала
      */
-    private void recoveredTasks(String line) {
-        Task task = CSVUtils.fromString(line);
-        setGenerateId(task.getId());
-        TypeTask typeTask = task.getType();
-        if (typeTask.equals(SUBTASK)) {
-            subtasks.put(task.getId(), (SubTask) task);
-        } else if (typeTask.equals(TASK)) {
-            tasks.put(task.getId(), task);
-        } else if (typeTask.equals(EPIC)) {
-            epics.put(task.getId(), (Epic) task);
+    private void replay(List<String> records) {
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            try {
+                replay(record);
+            } catch (RuntimeException e) {
+                if (i == records.size() - 1) {
+                    return;
+                }
+                throw new ManagerException("Повреждена запись журнала: " + record, e);
+            }
+        }
+    }
+
+    private void replay(String record) {
+        int separator = record.indexOf(SEPARATOR_RECORD);
+        String operation = record.substring(0, separator);
+        String value = record.substring(separator + 1);
+        switch (operation) {
+            case RECORD_PUT:
+                restore(CSVUtils.fromString(value));
+                break;
+            case RECORD_DELETE:
+                int id = Integer.parseInt(value);
+                if (subtasks.containsKey(id)) {
+                    super.deleteSubTask(id);
+                } else if (epics.containsKey(id)) {
+                    super.deleteEpic(id);
+                } else {
+                    super.deleteTask(id);
+                }
+                break;
+            case RECORD_VIEW:
+                Task task = getTaskInMemory(Integer.parseInt(value));
+                if (task.getId() != 0) {
+                    historyManager.add(task);
+                }
+                break;
+            case RECORD_CLEAR:
+                TypeTask typeTask = TypeTask.valueOf(value);
+                if (typeTask.equals(SUBTASK)) {
+                    super.deleteAllSubTasks();
+                } else if (typeTask.equals(EPIC)) {
+                    super.deleteAllEpics();
+                } else {
+                    super.deleteAllTasks();
+                }
+                break;
+            default:
+                throw new ManagerException("Неизвестная запись журнала: " + record);
         }
     }
 
     /**
-     * Распаковать строку в историю
+     * Учёт изменения: запись журнала копится в буфере, сохранение выполняется сразу
+     * или, с {@link GroupCommit}, одно на группу операций.
      *
-     * @param stringWithHistory Строка с историей о похождениях пользователя по задачам
+     * @param record запись журнала; в режиме без журнала не используется
      */
-    private void historyFromString(String stringWithHistory) {
-        int id;
-        for (String taskId : CSVUtils.historyFromString(stringWithHistory)) {
-            id = Integer.parseInt(taskId);
-            historyManager.add(getTaskInMemory(id));
+    private void persist(String record) {
+        if (journal != null) {
+            if (record == null) {
+                return;
+            }
+            pendingRecords.add(record);
+        }
+        if (inBatch) {
+            batchChanged = true;
+        } else {
+            commit();
+        }
+    }
+
+    private void commit() {
+        if (groupCommit != null) {
+            groupCommit.markDirty();
+        } else {
+            flushPending();
         }
-        CSVUtils.historyToString(historyManager);
+    }
+
+    private void persistPut(Task task) {
+        if (task != null) {
+            changed(task);
+        }
+        String record = null;
+        if (journal != null && task != null) {
+            String line = CSVUtils.toString(task);
+            record = record(RECORD_PUT, line.substring(0, line.length() - 1));
+        }
+        persist(record);
+    }
+
+    /**
+     * Задача добавлена или обновлена. Вызывается под монитором менеджера до сохранения;
+     * наследник, сохраняющий только изменения, запоминает задачу до следующего {@link #save()}.
+     *
+     * @param task сохранённая в менеджере версия задачи
+     */
+    protected void changed(Task task) {
+    }
+
+    /**
+     * Задача удалена, в том числе подзадача вместе с эпиком или при очистке списка. Вызывается
+     * под монитором менеджера до сохранения, для каждой удалённой задачи.
+     *
+     * @param task удалённая версия задачи
+     */
+    protected void removed(Task task) {
+    }
+
+    /**
+     * Задача просмотрена: история изменилась. Вызывается под монитором менеджера до сохранения.
+     *
+     * @param task просмотренная задача
+     */
+    protected void viewed(Task task) {
+    }
+
+    private void persistView(Task task) {
+        if (task != null) {
+            viewed(task);
+        }
+        persist(task != null ? record(RECORD_VIEW, task.getId()) : null);
+    }
+
+    private void persistRemoved(List<? extends Task> removedTasks, String record) {
+        for (Task task : removedTasks) {
+            removed(task);
+        }
+        persist(record);
+    }
+
+    /**
+     * Эпик и его подзадачи, которые удалит {@code deleteEpic}
+     */
+    private List<Task> epicWithSubTasks(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            return List.of();
+        }
+        List<Task> found = new ArrayList<>();
+        found.add(epic);
+        for (int subTaskId : epic.getSubTaskIds()) {
+            found.add(subtasks.get(subTaskId));
+        }
+        return found;
+    }
+
+    private static List<Task> found(Task task) {
+        return task == null ? List.of() : List.of(task);
+    }
+
+    private static String record(String operation, Object value) {
+        return operation + SEPARATOR_RECORD + value;
+    }
+
+    /**
+     * Сохранение накопленных изменений: записи дописываются в журнал одной группой
+     * (журнал, выросший больше порога, сворачивается в снимок), без журнала - полный снимок.
+     */
+    private void flushPending() {
+        if (journal == null) {
+            save();
+            return;
+        }
+        journal.appendAll(pendingRecords);
+        pendingRecords.clear();
+        if (journal.needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Барьер долговечности: после возврата все выполненные операции сохранены.
+     * Без {@link GroupCommit} операции сохраняются сразу, и метод ничего не делает.
+     */
+    public void flush() {
+        if (groupCommit != null) {
+            groupCommit.flush();
+        }
+    }
+
+    /**
+     * Компактизация: полный снимок заменяет журнал.
+     * Порядок шагов: снимок во временный файл со сбросом на диск, откладывание журнала,
+     * переименование снимка на место, удаление отложенного журнала. Сбой на любом шаге оставляет
+     * на диске состояние, из которого {@link #loadFromFile()} восстанавливается без повторного
+     * проигрывания записей, уже вошедших в снимок.
+     */
+    public synchronized void compact() {
+        pendingRecords.clear();
+        if (journal == null) {
+            save();
+            return;
+        }
+        File temp = writeTemp(file, format);
+        journal.rotate();
+        moveIntoPlace(temp, file);
+        journal.dropRotated();
     }
 
     /**
@@ -155,81 +633,125 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         super.addTask(task);
     }
 
+    /**
+     * Применение пакета с одним сохранением в конце. Записи журнала операций пакета копятся в буфере
+     * и дописываются одной группой, без журнала пишется один снимок. Если пакет не прошёл проверку,
+     * менеджер не изменился и сохранять нечего.
+     */
+    @Override
+    public synchronized void batch(Batch batch) {
+        inBatch = true;
+        try {
+            super.batch(batch);
+        } finally {
+            inBatch = false;
+            if (batchChanged) {
+                batchChanged = false;
+                commit();
+            }
+        }
+    }
+
     @Override
-    public Epic addEpic(Epic epic) {
+    public synchronized Epic addEpic(Epic epic) {
         Epic out = super.addEpic(epic);
-        save();
+        persistPut(out);
         return out;
     }
 
     @Override
-    public SubTask addSubTask(SubTask subTask) {
+    public synchronized SubTask addSubTask(SubTask subTask) {
         SubTask out = super.addSubTask(subTask);
-        save();
+        persistPut(out);
         return out;
     }
 
     @Override
-    public Task addTask(Task task) {
+    public synchronized Task addTask(Task task) {
         Task out = super.addTask(task);
-        save();
+        persistPut(out);
         return out;
     }
 
     @Override
-    public void updateTask(Task task) {
+    public synchronized void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        persistPut(task != null ? tasks.get(task.getId()) : null);
     }
 
     @Override
-    public void updateEpic(Epic epic) {
+    public synchronized void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persistPut(epic != null ? epics.get(epic.getId()) : null);
     }
 
     @Override
-    public void updateSubTask(SubTask subTask) {
+    public synchronized void updateSubTask(SubTask subTask) {
         super.updateSubTask(subTask);
-        save();
+        persistPut(subTask != null ? subtasks.get(subTask.getId()) : null);
     }
 
     @Override
-    public Task getTask(int id) {
+    public synchronized Task getTask(int id) {
         Task task = super.getTask(id);
-        save();
+        persistView(task);
         return task;
     }
 
     @Override
-    public Epic getEpic(int id) {
+    public synchronized Epic getEpic(int id) {
         Epic epic = super.getEpic(id);
-        save();
+        persistView(epic);
         return epic;
     }
 
     @Override
-    public SubTask getSubTask(int id) {
+    public synchronized SubTask getSubTask(int id) {
         SubTask subTask = super.getSubTask(id);
-        save();
+        persistView(subTask);
         return subTask;
     }
 
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteAllTasks() {
+        List<Task> removedTasks = new ArrayList<>(tasks.values());
+        super.deleteAllTasks();
+        persistRemoved(removedTasks, record(RECORD_CLEAR, TASK));
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        List<Task> removedTasks = new ArrayList<>(epics.values());
+        removedTasks.addAll(subtasks.values());
+        super.deleteAllEpics();
+        persistRemoved(removedTasks, record(RECORD_CLEAR, EPIC));
+    }
+
+    @Override
+    public synchronized void deleteAllSubTasks() {
+        List<Task> removedTasks = new ArrayList<>(subtasks.values());
+        super.deleteAllSubTasks();
+        persistRemoved(removedTasks, record(RECORD_CLEAR, SUBTASK));
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        List<Task> removedTasks = found(tasks.get(id));
         super.deleteTask(id);
-        save();
+        persistRemoved(removedTasks, record(RECORD_DELETE, id));
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
+        List<Task> removedTasks = epicWithSubTasks(id);
         super.deleteEpic(id);
-        save();
+        persistRemoved(removedTasks, record(RECORD_DELETE, id));
     }
 
     @Override
-    public void deleteSubTask(int id) {
+    public synchronized void deleteSubTask(int id) {
+        List<Task> removedTasks = found(subtasks.get(id));
         super.deleteSubTask(id);
-        save();
+        persistRemoved(removedTasks, record(RECORD_DELETE, id));
     }
-}
\ No newline at end of file
+}
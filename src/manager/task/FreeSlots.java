@@ -0,0 +1,178 @@
+package manager.task;
+
+/**
+ * Индекс свободных промежутков списка приоритета для {@link PrioritizedTasks}.
+ * <p>Промежутки {@code [start, end)} в секундах эпохи не пересекаются и хранятся в декартовом дереве
+ * по началу; каждый узел помнит наибольшую длину промежутка в своём поддереве. Поэтому первый
+ * промежуток не короче заданного после заданного момента находится спуском по дереву за O(log n):
+ * поддеревья, где такого промежутка нет, не просматриваются.</p>
+ * <p>Границы списка - {@link Long#MIN_VALUE} и {@link Long#MAX_VALUE}: промежуток, примыкающий
+ * к ним, считается бесконечным. Приоритет узла - перемешанное начало промежутка,
+ * поэтому форма дерева не зависит от порядка вставки.</p>
+ */
+class FreeSlots {
+    private Node root;
+
+    /**
+     * Добавление промежутка, не пересекающегося с уже добавленными
+     */
+    void put(long start, long end) {
+        root = insert(root, new Node(start, end));
+    }
+
+    /**
+     * Удаление промежутка по началу; если такого промежутка нет, ничего не меняется
+     */
+    void remove(long start) {
+        root = delete(root, start);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Самое раннее начало не раньше from, с которого свободно не меньше length секунд
+     *
+     * @return начало или {@link Long#MIN_VALUE}, если подходящего промежутка нет
+     */
+    long firstFit(long from, long length) {
+        Node floor = null;
+        for (Node node = root; node != null; ) {
+            if (node.start <= from) {
+                floor = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        if (floor != null && (floor.end == Long.MAX_VALUE || floor.end - from >= length)) {
+            return from;
+        }
+        Node next = first(root, from, length);
+        return next == null ? Long.MIN_VALUE : next.start;
+    }
+
+    /**
+     * @return промежуток с наименьшим началом после from не короче length или null
+     */
+    private static Node first(Node node, long from, long length) {
+        if (node == null || node.maxLength < length) {
+            return null;
+        }
+        if (node.start <= from) {
+            return first(node.right, from, length);
+        }
+        Node left = first(node.left, from, length);
+        if (left != null) {
+            return left;
+        }
+        if (node.length >= length) {
+            return node;
+        }
+        return first(node.right, from, length);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.start < node.start) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, long start) {
+        if (node == null) {
+            return null;
+        }
+        if (start < node.start) {
+            node.left = delete(node.left, start);
+        } else if (start > node.start) {
+            node.right = delete(node.right, start);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static final class Node {
+        private final long start;
+        private final long end;
+        private final long length;
+        private final int priority;
+        private long maxLength;
+        private Node left;
+        private Node right;
+
+        private Node(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.length = start == Long.MIN_VALUE || end == Long.MAX_VALUE ? Long.MAX_VALUE : end - start;
+            this.priority = mix(start);
+            this.maxLength = length;
+        }
+
+        private void update() {
+            maxLength = length;
+            if (left != null && left.maxLength > maxLength) {
+                maxLength = left.maxLength;
+            }
+            if (right != null && right.maxLength > maxLength) {
+                maxLength = right.maxLength;
+            }
+        }
+
+        private static int mix(long value) {
+            value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+            value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return (int) (value ^ (value >>> 33));
+        }
+    }
+}
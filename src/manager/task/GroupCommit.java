@@ -0,0 +1,122 @@
+package manager.task;
+
+import exception.ManagerException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Групповое сохранение (group commit) для FileBackedTasksManager и его наследников.
+ * <p>Операции менеджера только помечают состояние "грязным". Сохранение выполняется одно на группу:
+ * не позже чем через {@code maxDelayMillis} после первого несохранённого изменения
+ * или сразу на {@code maxOperations}-й операции. {@link #flush()} - явный барьер долговечности,
+ * при штатной остановке JVM несохранённые изменения сбрасывает shutdown hook.</p>
+ * <p>Всё состояние защищено монитором менеджера: фоновый поток сохраняет данные, удерживая тот же монитор,
+ * что и изменяющие методы менеджера.</p>
+ */
+public class GroupCommit implements AutoCloseable {
+    private final long maxDelayMillis;
+    private final int maxOperations;
+    private final ScheduledExecutorService executor;
+    private final Thread shutdownHook = new Thread(this::flush, "group-commit-shutdown");
+    private Object lock;
+    private Runnable flushAction;
+    private ScheduledFuture<?> scheduled;
+    private int operations;
+
+    /**
+     * @param maxDelayMillis максимальная задержка сохранения после первого изменения, мс
+     * @param maxOperations  количество операций, после которого сохранение выполняется сразу
+     */
+    public GroupCommit(long maxDelayMillis, int maxOperations) {
+        if (maxDelayMillis < 1 || maxOperations < 1) {
+            throw new ManagerException("Задержка и количество операций группы должны быть больше нуля");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxOperations = maxOperations;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Привязка к менеджеру
+     *
+     * @param lock        монитор менеджера
+     * @param flushAction сохранение накопленных изменений
+     */
+    void bind(Object lock, Runnable flushAction) {
+        if (this.lock != null) {
+            throw new ManagerException("GroupCommit уже привязан к менеджеру");
+        }
+        this.lock = lock;
+        this.flushAction = flushAction;
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Учёт несохранённой операции. Вызывается под монитором менеджера.
+     */
+    void markDirty() {
+        operations++;
+        if (operations >= maxOperations) {
+            flush();
+        } else if (scheduled == null) {
+            scheduled = executor.schedule(this::flushInBackground, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Сохранение всех накопленных изменений до возврата из метода
+     */
+    public void flush() {
+        if (lock == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (operations == 0) {
+                return;
+            }
+            int pending = operations;
+            operations = 0;
+            try {
+                flushAction.run();
+            } catch (RuntimeException e) {
+                operations += pending;
+                throw e;
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (ManagerException e) {
+            System.out.println("▓ Отложенное сохранение не удалось, повтор при следующей операции: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Сохранение накопленных изменений и остановка фонового потока
+     */
+    @Override
+    public void close() {
+        flush();
+        executor.shutdownNow();
+        if (lock != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM уже останавливается, hook отработает сам
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package manager.task;
+
+import java.util.Arrays;
+
+/**
+ * Столбцы в параллельных массивах кучи.
+ * Повторяющиеся строки делят один экземпляр через небольшой пул прямого отображения:
+ * ячейка пула по хешу строки хранит последнюю встреченную строку, совпадение возвращает её,
+ * иначе ячейка перезаписывается - без записи на каждую уникальную строку.
+ */
+class HeapColumns implements TaskColumns {
+    private static final int MIN_CAPACITY = 16;
+    private static final int POOL_SIZE = 1 << 12;
+
+    private final String[] pool = new String[POOL_SIZE];
+    private int rows;
+    private byte[] types = new byte[MIN_CAPACITY];
+    private byte[] statuses = new byte[MIN_CAPACITY];
+    private long[] starts = new long[MIN_CAPACITY];
+    private int[] durations = new int[MIN_CAPACITY];
+    private int[] epicIds = new int[MIN_CAPACITY];
+    private String[] titles = new String[MIN_CAPACITY];
+    private String[] descriptions = new String[MIN_CAPACITY];
+
+    @Override
+    public int newRow() {
+        if (rows == types.length) {
+            int capacity = rows + (rows >> 1);
+            types = Arrays.copyOf(types, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            epicIds = Arrays.copyOf(epicIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        return rows++;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public byte type(int row) {
+        return types[row];
+    }
+
+    @Override
+    public byte status(int row) {
+        return statuses[row];
+    }
+
+    @Override
+    public long start(int row) {
+        return starts[row];
+    }
+
+    @Override
+    public int duration(int row) {
+        return durations[row];
+    }
+
+    @Override
+    public int epicId(int row) {
+        return epicIds[row];
+    }
+
+    @Override
+    public String title(int row) {
+        return titles[row];
+    }
+
+    @Override
+    public String description(int row) {
+        return descriptions[row];
+    }
+
+    @Override
+    public void write(int row, byte type, byte status, long start, int duration, int epicId,
+                      String title, String description) {
+        types[row] = type;
+        statuses[row] = status;
+        starts[row] = start;
+        durations[row] = duration;
+        epicIds[row] = epicId;
+        titles[row] = pooled(title);
+        descriptions[row] = pooled(description);
+    }
+
+    @Override
+    public void free(int row) {
+        types[row] = FREE;
+        titles[row] = null;
+        descriptions[row] = null;
+    }
+
+    private String pooled(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+        String cached = pool[slot];
+        if (value.equals(cached)) {
+            return cached;
+        }
+        pool[slot] = value;
+        return value;
+    }
+}
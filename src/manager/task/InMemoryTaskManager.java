@@ -6,16 +6,15 @@ import tasks.Epic;
 import tasks.Status;
 import tasks.SubTask;
 import tasks.Task;
+import utils.IntLinkedSet;
+import utils.IntMap;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static tasks.Status.*;
-
 /**
  * Хранение задач всех типов.
  *
@@ -49,13 +48,25 @@ public class InMemoryTaskManager implements TaskManager {
      * Безопасно.
      * private tasks, subtasks, epics;
      * Небезопасно, НО нужно для загрузки истории из файла в обход get-метода в наследнике FileBackedTasksManager
-     * protected final Map<Integer, T extend Task> tasks, subtasks, epics;
+     * protected final IntMap<T extend Task> tasks, subtasks, epics; (ключ - int без упаковки)
+     */
+    protected final IntMap<Task> tasks = new IntMap<>();
+    protected final IntMap<SubTask> subtasks = new IntMap<>();
+    protected final IntMap<Epic> epics = new IntMap<>();
+    protected final PrioritizedTasks prioritizedTasks = new PrioritizedTasks();
+    /*
+     * Вторичные индексы статус -> id, по одному на тип задачи; индекс по времени - prioritizedTasks,
+     * индекс эпик -> подзадачи - список подзадач эпика
      */
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, SubTask> subtasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    private final Comparator<Task> compareToTime = Comparator.comparing(Task::getStartTime);
-    protected Set<Task> prioritizedTasks = new TreeSet<>(compareToTime);
+    private final StatusIndex taskStatuses = new StatusIndex();
+    private final StatusIndex subTaskStatuses = new StatusIndex();
+    private final StatusIndex epicStatuses = new StatusIndex();
+    /*
+     * Во время применения пакета (batch): id задач, которые вносятся в список приоритета после всех операций,
+     * и id эпиков, расчётные поля которых пересчитываются один раз в конце. Вне пакета - null.
+     */
+    private IntLinkedSet batchTimed;
+    private IntLinkedSet batchEpics;
 
 
     public InMemoryTaskManager(HistoryManager historyManager) {
@@ -68,7 +79,98 @@ public class InMemoryTaskManager implements TaskManager {
      * @param id id созданной задачи
      */
     protected void setGenerateId(int id) {
-        this.generateId = ++id;
+        this.generateId = Math.max(generateId, id + 1);
+    }
+
+    /**
+     * Восстановление задачи с уже выданным идентификатором (загрузка из файла, журнала, сервера)
+     * в обход add-методов: задача заменяет прежнюю версию с тем же id или добавляется как новая.
+     * Подзадача привязывается к эпику и попадает в список приоритета, расчётные поля эпика
+     * обновляются. Эпик должен быть восстановлен раньше своих подзадач.
+     *
+     * @param task восстановленная задача
+     */
+    protected void restore(Task task) {
+        int id = task.getId();
+        setGenerateId(id);
+        switch (task.getType()) {
+            case EPIC:
+                Epic epic = (Epic) task;
+                Epic previous = epics.put(id, epic);
+                if (previous != null && previous != epic) {
+                    epic.getSubTaskIds().addAll(previous.getSubTaskIds());
+                }
+                recountEpic(epic);
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
+                break;
+            case SUBTASK:
+                SubTask subTask = (SubTask) task;
+                Epic parent = epics.get(subTask.getEpicId());
+                if (parent == null) {
+                    throw new ManagerException("Подзадача " + id + " ссылается на несуществующий эпик "
+                            + subTask.getEpicId());
+                }
+                updatePrioritizedTasks(subTask);
+                subtasks.put(id, subTask);
+                subTaskStatuses.put(id, subTask.getStatus());
+                parent.putSubTask(subTask);
+                updateEpicStatus(parent);
+                updateEpicTime(parent);
+                break;
+            default:
+                updatePrioritizedTasks(task);
+                tasks.put(id, task);
+                taskStatuses.put(id, task.getStatus());
+        }
+    }
+
+    /**
+     * Массовое восстановление задач из файла. В пустой менеджер задачи раскладываются по таблицам,
+     * список приоритета строится одной сортировкой, эпики пересчитываются по одному разу,
+     * генератор id обновляется один раз. В непустой менеджер задачи восстанавливаются по одной.
+     *
+     * @param loadedTasks    задачи
+     * @param loadedEpics    эпики
+     * @param loadedSubTasks подзадачи
+     */
+    protected void restoreAll(List<Task> loadedTasks, List<Epic> loadedEpics, List<SubTask> loadedSubTasks) {
+        if (!tasks.isEmpty() || !epics.isEmpty() || !subtasks.isEmpty()) {
+            loadedEpics.forEach(this::restore);
+            loadedTasks.forEach(this::restore);
+            loadedSubTasks.forEach(this::restore);
+            return;
+        }
+        int maxId = 0;
+        for (Epic epic : loadedEpics) {
+            epics.put(epic.getId(), epic);
+            maxId = Math.max(maxId, epic.getId());
+        }
+        List<Task> timed = new ArrayList<>(loadedTasks.size() + loadedSubTasks.size());
+        timed.addAll(loadedTasks);
+        timed.addAll(loadedSubTasks);
+        prioritizedTasks.addAll(timed);
+        for (Task task : loadedTasks) {
+            tasks.put(task.getId(), task);
+            taskStatuses.put(task.getId(), task.getStatus());
+            maxId = Math.max(maxId, task.getId());
+        }
+        for (SubTask subTask : loadedSubTasks) {
+            Epic parent = epics.get(subTask.getEpicId());
+            if (parent == null) {
+                throw new ManagerException("Подзадача " + subTask.getId() + " ссылается на несуществующий эпик "
+                        + subTask.getEpicId());
+            }
+            subtasks.put(subTask.getId(), subTask);
+            subTaskStatuses.put(subTask.getId(), subTask.getStatus());
+            parent.putSubTask(subTask);
+            maxId = Math.max(maxId, subTask.getId());
+        }
+        for (Epic epic : loadedEpics) {
+            updateEpicStatus(epic);
+            updateEpicTime(epic);
+        }
+        setGenerateId(maxId);
     }
 
     /**
@@ -123,54 +225,83 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     /**
-     * Удаление всех задач
+     * Удаление всех задач.
+     * Список приоритета и история чистятся за один проход по карте, без поштучного deleteTask.
      */
     @Override
     public void deleteAllTasks() {
-        //tasks.clear();
-        while (tasks.size() > 0) {
-            deleteTask((int) tasks.keySet().toArray()[0]);
-        }
+        tasks.forEachKey(id -> {
+            prioritizedTasks.remove(id);
+            historyManager.remove(id);
+        });
+        tasks.clear();
+        taskStatuses.clear();
     }
 
     /**
-     * Удаление всех главных задач.
+     * Удаление всех главных задач вместе со всеми подзадачами.
      */
     @Override
     public void deleteAllEpics() {
-        while (epics.size() > 0) {
-            deleteEpic((int) epics.keySet().toArray()[0]);
-        }
+        clearSubTasks();
+        epics.forEachKey(historyManager::remove);
+        epics.clear();
+        epicStatuses.clear();
     }
 
     /**
      * Удаление всех подзадач.
+     * Эпики остаются без подзадач: статус NEW, время сброшено.
      */
     @Override
     public void deleteAllSubTasks() {
-        while (subtasks.size() > 0) {
-            deleteSubTask((int) subtasks.keySet().toArray()[0]);
+        clearSubTasks();
+        for (Epic epic : epics.values()) {
+            epic.clearSubTasks();
+            updateEpicStatus(epic);
+            updateEpicTime(epic);
         }
     }
 
+    /**
+     * Очистка карты подзадач, их записей в списке приоритета и в истории.
+     */
+    private void clearSubTasks() {
+        subtasks.forEachKey(id -> {
+            prioritizedTasks.remove(id);
+            historyManager.remove(id);
+        });
+        subtasks.clear();
+        subTaskStatuses.clear();
+    }
+
     /**
      * Обновление задачи
      */
     @Override
     public void updateTask(Task task) {
         if (task != null && tasks.containsKey(task.getId())) {
-            tasks.replace(task.getId(), task);
             updatePrioritizedTasks(task);
+            tasks.replace(task.getId(), task);
+            taskStatuses.put(task.getId(), task.getStatus());
         }
     }
 
     /**
-     * Обновление Большой задачи
+     * Обновление Большой задачи.
+     * Если передан новый объект эпика, его расчётные поля, статус и время заполняются по его подзадачам:
+     * статус из запроса не сохраняется.
      */
     @Override
     public void updateEpic(Epic epic) {
         if (epic != null && epics.containsKey(epic.getId())) {
-            epics.replace(epic.getId(), epic);
+            Epic previous = epics.replace(epic.getId(), epic);
+            if (previous != epic) {
+                recountEpic(epic);
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
+            }
+            epicStatuses.put(epic.getId(), epic.getStatus());
         }
     }
 
@@ -180,9 +311,11 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateSubTask(SubTask subTask) {
         if (subTask != null && subtasks.containsKey(subTask.getId())) {
+            updatePrioritizedTasks(subTask);
             subtasks.put(subTask.getId(), subTask);
+            subTaskStatuses.put(subTask.getId(), subTask.getStatus());
             Epic epic = epics.get(subTask.getEpicId());
-            updatePrioritizedTasks(subTask);
+            epic.putSubTask(subTask);
             updateEpicStatus(epic);
             updateEpicTime(epic);
         }
@@ -238,8 +371,9 @@ public class InMemoryTaskManager implements TaskManager {
     public Task addTask(Task task) {
         if (task != null) {
             task.setId(generateId++);
-            tasks.put(task.getId(), task);
             addPrioritizedTasks(task);
+            tasks.put(task.getId(), task);
+            taskStatuses.put(task.getId(), task.getStatus());
             return task;
         }
         throw new ManagerException("Задача не создана");
@@ -255,6 +389,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic != null) {
             epic.setId(generateId++);
             epics.put(epic.getId(), epic);
+            epicStatuses.put(epic.getId(), epic.getStatus());
             return epic;
         }
         throw new ManagerException("Задача не создана");
@@ -281,11 +416,13 @@ public class InMemoryTaskManager implements TaskManager {
             if (epics.containsKey(epicId)) {
                 int subtaskId = generateId++;
                 subTask.setId(subtaskId);
-                subtasks.put(subtaskId, subTask);
-                epics.get(epicId).getSubTaskIds().add(subtaskId);
                 addPrioritizedTasks(subTask);
-                updateEpicStatus(epics.get(epicId));
-                updateEpicTime(epics.get(epicId));
+                subtasks.put(subtaskId, subTask);
+                subTaskStatuses.put(subtaskId, subTask.getStatus());
+                Epic epic = epics.get(epicId);
+                epic.putSubTask(subTask);
+                updateEpicStatus(epic);
+                updateEpicTime(epic);
                 return subTask;
             }
             throw new ManagerException("Сначала создайте главную задачу.");
@@ -301,8 +438,9 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteTask(int id) {
         if (tasks.containsKey(id)) {
-            prioritizedTasks.removeIf(task -> id == task.getId());
+            prioritizedTasks.remove(id);
             tasks.remove(id);
+            taskStatuses.remove(id);
             historyManager.remove(id);
         }
     }
@@ -323,11 +461,13 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic != null) {
             for (int subTaskId : epic.getSubTaskIds()) {
-                prioritizedTasks.removeIf(task -> subTaskId == task.getId());
+                prioritizedTasks.remove(subTaskId);
                 subtasks.remove(subTaskId);
+                subTaskStatuses.remove(subTaskId);
                 historyManager.remove(subTaskId);
             }
             epics.remove(id);
+            epicStatuses.remove(id);
             historyManager.remove(id);
         }
     }
@@ -347,8 +487,9 @@ public class InMemoryTaskManager implements TaskManager {
             epic.removeSubtaskId(subtask.getId());
             updateEpicStatus(epic);
             updateEpicTime(epic);
-            prioritizedTasks.removeIf(task -> id == task.getId());
+            prioritizedTasks.remove(id);
             subtasks.remove(id);
+            subTaskStatuses.remove(id);
             historyManager.remove(id);
         }
     }
@@ -377,37 +518,27 @@ public class InMemoryTaskManager implements TaskManager {
      *     <li>Время начала /{@code startTime}/ : дата старта самой ранней подзадачи.</li>
      *     <li>Время завершения /{@code endTime}/ : время окончания самой поздней из задач.</li>
      * </ul>
+     * Крайние значения эпик хранит сам и обновляет при изменении подзадач, обход подзадач не нужен.
      *
      * @param epic эпик
      */
     private void updateEpicTime(Epic epic) {
-        if(epic.getSubTaskIds().isEmpty()){
+        if (batchEpics != null) {
+            batchEpics.addInt(epic.getId());
+            return;
+        }
+        LocalDateTime startTime = epic.getSubTasksStartTime();
+        if (startTime == null) {
             LocalDateTime nullTime = LocalDateTime.ofEpochSecond(0L,0, ZoneOffset.UTC);
             epic.setStartEndTime(nullTime, nullTime);
         } else {
-            List<SubTask> subTaskList = epic.getSubTaskIds()
-                    .stream()
-                    .map(subtasks::get)
-                    .sorted(Comparator.comparing(Task::getStartTime))
-                    .collect(Collectors.toList());
-            int lastIndex = subTaskList.size() - 1;
-            LocalDateTime startTimeSubTaskFirst = subTaskList.get(0).getStartTime();
-            LocalDateTime endTimeSubTaskLast = subTaskList.get(lastIndex).getStartTime();
-            Duration durationSubTaskLast = subTaskList.get(lastIndex).getDuration();
-            LocalDateTime endTimeEpic = endTimeSubTaskLast.plusMinutes(durationSubTaskLast.toMinutes());
-            epic.setStartEndTime(startTimeSubTaskFirst, endTimeEpic);
+            epic.setStartEndTime(startTime, epic.getSubTasksEndTime());
         }
     }
 
     /**
-     * Проверить статус всех главных задач
-     * <ul>
-     *     <li>Получаем доступ к объекту Большая задача из Карты</li>
-     *     <li>Получаем список ID связанных подзадач</li>
-     *     <li>Объявляем счётчик состояний</li>
-     *     <li>Ищем все связанные задачи для получения доступа к статусу задачи</li>
-     *     <li>Подсчёт всех состояний<sup>*</sup></li>
-     * </ul><hr>
+     * Проверить статус главной задачи
+     * <p>Статус берётся из счётчиков статусов подзадач, которые эпик ведёт сам: O(1).</p>
      * <sup>*</sup>Управление статусами осуществляется по следующему правилу:
      *      <p>ЕСЛИ (очередь подзадач пуста ИЛИ все подзадачи NEW) ТО статус-NEW</p>
      *      <p>ЕСЛИ (Все подзадачи завершены) ТО статус-DONE</p>
@@ -415,144 +546,188 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void updateEpicStatus(Epic epic) {
+        if (batchEpics != null) {
+            batchEpics.addInt(epic.getId());
+            return;
+        }
         if (epics.containsKey(epic.getId())) {
-            List<Integer> subTaskId = epic.getSubTaskIds();
-            if (!subTaskId.isEmpty()) {
-                epic.setStatus(calculateStatus(subTaskId));
-                epics.put(epic.getId(), epic);
-            } else {
-                epic.setStatus(NEW);
-            }
+            epic.setStatus(epic.calculateStatus());
+            epicStatuses.put(epic.getId(), epic.getStatus());
         }
     }
 
-    private Status calculateStatus(List<Integer> subTaskId){
-        if (subTaskId.size() == 0) return NEW;
-        int counterNew = 0;
-        int counterDone = 0;
-        int count = subTaskId.size();
-        for (int id : subTaskId) {
-            Status markStatus = subtasks.get(id).getStatus();
-            if (markStatus.equals(NEW)) {
-                counterNew++;
-            }
-            if (markStatus.equals(DONE)) {
-                counterDone++;
+    /**
+     * Заполнение расчётных полей эпика по списку его подзадач (полный проход, O(k log k)).
+     * Нужно для эпика, пришедшего извне, например из JSON: расчётные поля не сериализуются.
+     *
+     * @param epic эпик
+     */
+    private void recountEpic(Epic epic) {
+        List<Integer> subTaskIds = new ArrayList<>(epic.getSubTaskIds());
+        epic.clearSubTasks();
+        for (int id : subTaskIds) {
+            SubTask subTask = subtasks.get(id);
+            if (subTask != null) {
+                epic.putSubTask(subTask);
             }
         }
-        if (count == counterNew) return NEW;
-        if (count == counterDone) return DONE;
-        return IN_PROGRESS;
     }
 
     /**
-     * Обновление в списке приоритета
+     * Обновление в списке приоритета.
+     * Прежняя версия задачи находится по идентификатору, без обхода списка.
      *
      * @param task задача для обновления
+     * @throws ManagerException если новое время выполнения задачи пересекается с другой задачей
      */
     public void updatePrioritizedTasks(Task task) {
-        prioritizedTasks.removeIf(task1 -> task1.getId() == task.getId());
-        addPrioritizedTasks(task);
+        if (batchTimed != null) {
+            prioritizedTasks.remove(task.getId());
+            batchTimed.addInt(task.getId());
+            return;
+        }
+        prioritizedTasks.update(task);
     }
 
     /**
-     * Добавление задач и подзадач в список приоритета
+     * Добавление задач и подзадач в список приоритета.
+     * Пересечение по времени проверяется только с соседними задачами списка.
      *
      * @param task задача для добавления
+     * @throws ManagerException если время выполнения задачи пересекается с другой задачей
      */
     public void addPrioritizedTasks(Task task) {
+        if (batchTimed != null) {
+            batchTimed.addInt(task.getId());
+            return;
+        }
         prioritizedTasks.add(task);
-        checkTaskPriority();
     }
 
     /**
-     * Проверка временного приоритета задач
+     * Получение копии списка приоритетов
+     *
+     * @return список приоритетов (копия)
      */
-    private void checkTaskPriority() {
-        List<Task> tasks = getPrioritizedTasks();
-        for (int i = 1; i < tasks.size(); i++) {
-            Task taskChecking = tasks.get(i);
-            boolean tasksCrossingTime = checkTimeCrossing(taskChecking, tasks);
-            if (tasksCrossingTime) {
-                throw new ManagerException("Task[" + taskChecking.getId() + "] overlaps Task[" + tasks.get(i - 1) + "]");
-            }
-        }
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks.toList();
     }
 
-    /**
-     * Конвертор LocalDateTime в список Instant
-     *
-     * @param time LocalDateTime
-     * @return Instant
-     */
-    private Instant timeToInstant(LocalDateTime time) {
-        return time.toInstant(ZoneOffset.UTC);
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return byStatus(taskStatuses, status, tasks);
     }
 
-    /**
-     * Получение времени начала и расчёт конца задачи
-     *
-     * @param task задача
-     * @return Список мгновений времени для сравнения времени выполнения задач
-     */
-    private List<Instant> getInstantsArrayFromTask(Task task) {
-        LocalDateTime start = task.getStartTime();
-        long minutes = task.getDuration().toMinutes();
-        LocalDateTime end = start.plusMinutes(minutes);
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return byStatus(epicStatuses, status, epics);
+    }
 
-        return List.of(timeToInstant(start), timeToInstant(end));
+    @Override
+    public List<SubTask> getSubTasksByStatus(Status status) {
+        return byStatus(subTaskStatuses, status, subtasks);
     }
 
     /**
-     * Проверка пересечения времени выполнения задач
-     *
-     * @param taskCheck Задача на проверку
-     * @param tasks     список задач по приоритету (копия)
-     * @return true - есть пересечение: false - задачи по порядку.
+     * Выборка из списка приоритета по индексам: промежуток времени - по списку приоритета, O(log n + k),
+     * только статус - по индексу статусов с сортировкой найденного, O(k log k).
      */
-    private boolean checkTimeCrossing(Task taskCheck, List<Task> tasks) {
+    @Override
+    public List<Task> getPrioritizedTasks(Status status, LocalDateTime from, LocalDateTime to) {
+        if (from != null || to != null) {
+            List<Task> range = prioritizedTasks.between(from, to);
+            if (status != null) {
+                range.removeIf(task -> task.getStatus() != status);
+            }
+            return range;
+        }
+        if (status == null) {
+            return getPrioritizedTasks();
+        }
+        List<Task> found = new ArrayList<>(byStatus(taskStatuses, status, tasks));
+        found.addAll(byStatus(subTaskStatuses, status, subtasks));
+        PrioritizedTasks.sort(found);
+        return found;
+    }
 
-        List<Instant> taskTime = getInstantsArrayFromTask(taskCheck);
-        Instant taskStart = taskTime.get(0);
-        Instant taskEnd = taskTime.get(1);
+    private static <T extends Task> List<T> byStatus(StatusIndex index, Status status, IntMap<T> table) {
+        int[] ids = index.ids(status);
+        List<T> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            found.add(table.get(id));
+        }
+        return found;
+    }
 
-        for (Task task : tasks) {
+    @Override
+    public List<Task> getTasks(int cursor, int limit) {
+        return Pages.byId(tasks, cursor, limit, generateId);
+    }
 
-            List<Instant> prioritizeTaskTime = getInstantsArrayFromTask(task);
-            Instant prioritizeTaskStart = prioritizeTaskTime.get(0);
-            Instant prioritizeTaskEnd = prioritizeTaskTime.get(1);
+    @Override
+    public List<Epic> getEpics(int cursor, int limit) {
+        return Pages.byId(epics, cursor, limit, generateId);
+    }
 
+    @Override
+    public List<SubTask> getSubTasks(int cursor, int limit) {
+        return Pages.byId(subtasks, cursor, limit, generateId);
+    }
 
-            //taskStart<prioritizeTaskStart
-            boolean taskStartBeforePrioritizeTaskStart = taskStart.isBefore(prioritizeTaskStart);
-            //taskEnd>prioritizeTaskStart
-            boolean taskEndAfterPrioritizeTaskStart = taskEnd.isAfter(prioritizeTaskStart);
-            //taskEnd>prioritizeTaskEnd
-            boolean taskEndAfterPrioritizeTaskEnd = taskEnd.isAfter(prioritizeTaskEnd);
-            //taskStart<prioritizeTaskEnd
-            boolean taskStartBeforePrioritizeTaskEnd = taskStart.isBefore(prioritizeTaskEnd);
+    @Override
+    public List<Task> getPrioritizedTasks(Pages.Position after, int limit) {
+        return prioritizedTasks.page(after, limit);
+    }
 
-            if (taskStartBeforePrioritizeTaskStart) {
-                if (taskEndAfterPrioritizeTaskStart) {
-                    return true;
-                } else if (taskEndAfterPrioritizeTaskEnd) {
-                    return true;
+    /**
+     * Применение пакета. Пакет проверяется целиком до первого изменения; при применении
+     * задачи вносятся в список приоритета после всех операций (прежние версии убираются сразу,
+     * поэтому перестановка задач внутри пакета не даёт ложных пересечений), расчётные поля
+     * каждого затронутого эпика пересчитываются один раз.
+     *
+     * @throws ManagerException если пакет нельзя применить целиком; менеджер не меняется
+     */
+    @Override
+    public void batch(Batch batch) {
+        batch.validate(this::find, prioritizedTasks, false);
+        batchTimed = new IntLinkedSet();
+        batchEpics = new IntLinkedSet();
+        IntLinkedSet timed = batchTimed;
+        IntLinkedSet touched = batchEpics;
+        try {
+            batch.applyTo(this);
+        } finally {
+            batchTimed = null;
+            batchEpics = null;
+            for (int id : timed.toIntArray()) {
+                Task task = tasks.containsKey(id) ? tasks.get(id) : subtasks.get(id);
+                if (task != null) {
+                    prioritizedTasks.update(task);
                 }
-            } else if (taskEndAfterPrioritizeTaskEnd) {
-                if (taskStartBeforePrioritizeTaskEnd) {
-                    return true;
+            }
+            for (int id : touched.toIntArray()) {
+                Epic epic = epics.get(id);
+                if (epic != null) {
+                    updateEpicStatus(epic);
+                    updateEpicTime(epic);
                 }
             }
         }
-        return false;
     }
 
     /**
-     * Получение копии списка приоритетов
-     *
-     * @return список приоритетов (копия)
+     * Поиск задачи, эпика или подзадачи по id без записи в историю
      */
-    public List<Task> getPrioritizedTasks() {
-        return List.copyOf(prioritizedTasks);
+    private Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task != null ? task : epics.get(id);
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime earliest) {
+        return prioritizedTasks.findFreeSlot(duration, earliest);
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package manager.task;
+
+import exception.ManagerException;
+import utils.CSVReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Журнал операций (write-ahead log) для FileBackedTasksManager.
+ * <p>Каждая операция менеджера дописывается в конец файла одной строкой, поэтому стоимость записи
+ * пропорциональна изменению, а не размеру всей доски. Когда записей становится больше порога,
+ * менеджер сохраняет полный снимок (CSV или бинарный) и начинает новый журнал (компактизация).</p>
+ * <p>При компактизации журнал не очищается на месте, а откладывается ({@link #rotate()}) до замены снимка
+ * и удаляется после неё ({@link #dropRotated()}): по наличию отложенного журнала после сбоя видно,
+ * что компактизация не завершилась.</p>
+ */
+public class Journal {
+    /**
+     * Политика сброса журнала на диск
+     */
+    public enum SyncPolicy {
+        /**
+         * Запись передаётся операционной системе, fsync не вызывается:
+         * переживает падение процесса, но не отключение питания.
+         */
+        NONE,
+        /**
+         * fsync после каждой записи (при групповом сохранении - после каждой группы записей)
+         */
+        EVERY_RECORD
+    }
+
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1_000;
+    private static final String ROTATED_SUFFIX = ".old";
+
+    private final File file;
+    private final File rotated;
+    private final SyncPolicy syncPolicy;
+    private final int compactionThreshold;
+    private int records;
+
+    /**
+     * @param file                файл журнала
+     * @param syncPolicy          политика сброса на диск
+     * @param compactionThreshold количество записей, после которого журнал сворачивается в снимок
+     */
+    public Journal(File file, SyncPolicy syncPolicy, int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new ManagerException("Порог компактизации должен быть больше нуля");
+        }
+        this.file = file;
+        this.rotated = rotated(file);
+        this.syncPolicy = syncPolicy;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public Journal(File file) {
+        this(file, SyncPolicy.NONE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Журнал рядом с файлом снимка: {@code tasks.csv -> tasks.csv.log}
+     *
+     * @param snapshot файл снимка
+     * @return файл журнала
+     */
+    public static File nextTo(File snapshot) {
+        return new File(snapshot.getPath() + ".log");
+    }
+
+    /**
+     * Отложенный при компактизации журнал: {@code tasks.csv.log -> tasks.csv.log.old}
+     *
+     * @param journal файл журнала
+     * @return файл отложенного журнала
+     */
+    public static File rotated(File journal) {
+        return new File(journal.getPath() + ROTATED_SUFFIX);
+    }
+
+    /**
+     * Дописать группу записей одной операцией записи и, при политике EVERY_RECORD, одним fsync
+     *
+     * @param records записи без перевода строки
+     */
+    public void appendAll(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String record : records) {
+            text.append(record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(UTF_8));
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (syncPolicy == SyncPolicy.EVERY_RECORD) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка записи в журнал " + file.getName(), e);
+        }
+        this.records += records.size();
+    }
+
+    /**
+     * @return true - журнал пора свернуть в снимок
+     */
+    public boolean needsCompaction() {
+        return records >= compactionThreshold;
+    }
+
+    /**
+     * Чтение всех записей журнала. Записи разделяются переводом строки вне кавычек,
+     * поэтому перевод строки внутри названия задачи запись не разрывает.
+     *
+     * @return записи в порядке добавления; пустой список, если журнала нет
+     */
+    public List<String> readAll() {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (Reader in = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            CSVReader csv = new CSVReader(in);
+            List<String> lines = new ArrayList<>();
+            while (csv.next()) {
+                lines.add(csv.record());
+            }
+            records = lines.size();
+            return lines;
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка чтения журнала " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Откладывание журнала перед заменой снимка: файл журнала переименовывается,
+     * следующие записи попадают в новый пустой журнал.
+     */
+    public void rotate() {
+        try {
+            if (file.exists()) {
+                Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.createFile(rotated.toPath());
+            }
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка переименования журнала " + file.getName(), e);
+        }
+        records = 0;
+    }
+
+    /**
+     * @return true - есть отложенный журнал, компактизация прервана сбоем
+     */
+    public boolean hasRotated() {
+        return rotated.exists();
+    }
+
+    /**
+     * Удаление отложенного журнала после замены снимка
+     */
+    public void dropRotated() {
+        try {
+            Files.deleteIfExists(rotated.toPath());
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка удаления журнала " + rotated.getName(), e);
+        }
+    }
+}
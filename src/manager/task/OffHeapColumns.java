@@ -0,0 +1,235 @@
+package manager.task;
+
+import exception.ManagerException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Столбцы вне кучи: записи строк лежат в прямых {@link ByteBuffer} ("плитах") фиксированного размера,
+ * в куче остаётся только индекс строка -> смещение записи (массив long, сборщик мусора его не обходит).
+ * <p>Запись: тип (1 байт), статус (1), начало (8), длительность (4), id эпика (4),
+ * длины заголовка и описания в байтах UTF-8 (по 4, -1 - null), затем сами строки.
+ * Смещение - номер плиты в старших 32 битах и позиция в плите в младших.</p>
+ * <p>Записи только дописываются: обновление пишет новую запись, старая становится мусором.
+ * Когда мусора больше, чем живых данных (и не меньше одной плиты), живые записи
+ * переписываются в новые плиты подряд, старые плиты освобождаются вместе со своими буферами.</p>
+ */
+class OffHeapColumns implements TaskColumns {
+    private static final int TYPE = 0;
+    private static final int STATUS = 1;
+    private static final int START = 2;
+    private static final int DURATION = 10;
+    private static final int EPIC_ID = 14;
+    private static final int TITLE_LENGTH = 18;
+    private static final int DESCRIPTION_LENGTH = 22;
+    private static final int HEADER = 26;
+    private static final long NONE = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private long[] offsets = new long[MIN_CAPACITY];
+    private int rows;
+    private int position;
+    private long live;
+    private long garbage;
+
+    /**
+     * @param slabSize размер плиты в байтах; запись задачи должна помещаться в одну плиту
+     */
+    OffHeapColumns(int slabSize) {
+        if (slabSize < HEADER) {
+            throw new IllegalArgumentException("Размер плиты меньше заголовка записи: " + slabSize);
+        }
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * @return байт вне кучи, занятых плитами
+     */
+    long allocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    @Override
+    public int newRow() {
+        if (rows == offsets.length) {
+            offsets = Arrays.copyOf(offsets, rows + (rows >> 1));
+        }
+        offsets[rows] = NONE;
+        return rows++;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public byte type(int row) {
+        long offset = offsets[row];
+        return offset == NONE ? FREE : slab(offset).get(position(offset) + TYPE);
+    }
+
+    @Override
+    public byte status(int row) {
+        long offset = offsets[row];
+        return slab(offset).get(position(offset) + STATUS);
+    }
+
+    @Override
+    public long start(int row) {
+        long offset = offsets[row];
+        return slab(offset).getLong(position(offset) + START);
+    }
+
+    @Override
+    public int duration(int row) {
+        long offset = offsets[row];
+        return slab(offset).getInt(position(offset) + DURATION);
+    }
+
+    @Override
+    public int epicId(int row) {
+        long offset = offsets[row];
+        return slab(offset).getInt(position(offset) + EPIC_ID);
+    }
+
+    @Override
+    public String title(int row) {
+        long offset = offsets[row];
+        ByteBuffer slab = slab(offset);
+        int record = position(offset);
+        return string(slab, record + HEADER, slab.getInt(record + TITLE_LENGTH));
+    }
+
+    @Override
+    public String description(int row) {
+        long offset = offsets[row];
+        ByteBuffer slab = slab(offset);
+        int record = position(offset);
+        int titleLength = Math.max(slab.getInt(record + TITLE_LENGTH), 0);
+        return string(slab, record + HEADER + titleLength, slab.getInt(record + DESCRIPTION_LENGTH));
+    }
+
+    @Override
+    public void write(int row, byte type, byte status, long start, int duration, int epicId,
+                      String title, String description) {
+        byte[] titleBytes = bytes(title);
+        byte[] descriptionBytes = bytes(description);
+        int size = HEADER + length(titleBytes) + length(descriptionBytes);
+        if (size > slabSize) {
+            throw new ManagerException("Задача не помещается в плиту памяти: " + size + " байт");
+        }
+        release(row);
+        long offset = allocate(size);
+        ByteBuffer slab = slab(offset);
+        int record = position(offset);
+        slab.put(record + TYPE, type);
+        slab.put(record + STATUS, status);
+        slab.putLong(record + START, start);
+        slab.putInt(record + DURATION, duration);
+        slab.putInt(record + EPIC_ID, epicId);
+        slab.putInt(record + TITLE_LENGTH, titleBytes == null ? -1 : titleBytes.length);
+        slab.putInt(record + DESCRIPTION_LENGTH, descriptionBytes == null ? -1 : descriptionBytes.length);
+        put(slab, record + HEADER, titleBytes);
+        put(slab, record + HEADER + length(titleBytes), descriptionBytes);
+        offsets[row] = offset;
+        live += size;
+        compactIfNeeded();
+    }
+
+    @Override
+    public void free(int row) {
+        release(row);
+        offsets[row] = NONE;
+        compactIfNeeded();
+    }
+
+    private void release(int row) {
+        long offset = offsets[row];
+        if (offset != NONE) {
+            int size = size(slab(offset), position(offset));
+            live -= size;
+            garbage += size;
+        }
+    }
+
+    private long allocate(int size) {
+        if (slabs.isEmpty() || position + size > slabSize) {
+            slabs.add(ByteBuffer.allocateDirect(slabSize));
+            position = 0;
+        }
+        long offset = ((long) (slabs.size() - 1) << 32) | position;
+        position += size;
+        return offset;
+    }
+
+    private void compactIfNeeded() {
+        if (garbage < slabSize || garbage <= live) {
+            return;
+        }
+        List<ByteBuffer> previous = new ArrayList<>(slabs);
+        slabs.clear();
+        for (int row = 0; row < rows; row++) {
+            long offset = offsets[row];
+            if (offset == NONE) {
+                continue;
+            }
+            ByteBuffer source = previous.get((int) (offset >>> 32)).duplicate();
+            int record = position(offset);
+            int size = size(source, record);
+            long moved = allocate(size);
+            source.limit(record + size).position(record);
+            ByteBuffer target = slab(moved).duplicate();
+            target.position(position(moved));
+            target.put(source);
+            offsets[row] = moved;
+        }
+        garbage = 0;
+    }
+
+    private ByteBuffer slab(long offset) {
+        return slabs.get((int) (offset >>> 32));
+    }
+
+    private static int position(long offset) {
+        return (int) offset;
+    }
+
+    private static int size(ByteBuffer slab, int record) {
+        return HEADER + Math.max(slab.getInt(record + TITLE_LENGTH), 0)
+                + Math.max(slab.getInt(record + DESCRIPTION_LENGTH), 0);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void put(ByteBuffer slab, int index, byte[] bytes) {
+        if (bytes != null && bytes.length > 0) {
+            ByteBuffer target = slab.duplicate();
+            target.position(index);
+            target.put(bytes);
+        }
+    }
+
+    private static String string(ByteBuffer slab, int index, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer source = slab.duplicate();
+        source.position(index);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
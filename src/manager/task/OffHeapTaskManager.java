@@ -0,0 +1,40 @@
+package manager.task;
+
+import manager.history.HistoryManager;
+
+/**
+ * Хранение задач и подзадач вне кучи - для досок на десятки миллионов задач.
+ * <p>Логика та же, что у {@link ColumnarTaskManager}, но записи задач лежат в прямых буферах
+ * ({@link OffHeapColumns}), а в куче остаются только массивы примитивов: индекс строка -> смещение
+ * и список приоритета. Сборщику мусора нечего обходить на каждую задачу, поэтому размер кучи
+ * и паузы сборки почти не растут вместе с доской. Объекты задач создаются только при чтении.</p>
+ * <p>Память вне кучи ограничена {@code -XX:MaxDirectMemorySize}.</p>
+ */
+public class OffHeapTaskManager extends ColumnarTaskManager {
+    public static final int DEFAULT_SLAB_SIZE = 16 << 20;
+
+    private final OffHeapColumns columns;
+
+    public OffHeapTaskManager(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param slabSize размер одного прямого буфера в байтах
+     */
+    public OffHeapTaskManager(HistoryManager historyManager, int slabSize) {
+        this(historyManager, new OffHeapColumns(slabSize));
+    }
+
+    private OffHeapTaskManager(HistoryManager historyManager, OffHeapColumns columns) {
+        super(historyManager, columns);
+        this.columns = columns;
+    }
+
+    /**
+     * @return байт вне кучи, занятых хранилищем
+     */
+    public long getOffHeapBytes() {
+        return columns.allocatedBytes();
+    }
+}
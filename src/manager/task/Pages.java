@@ -0,0 +1,278 @@
+package manager.task;
+
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Постраничное чтение задач по курсору.
+ * <p>Страницы по id: курсор - id последней полученной задачи (0 - с начала), следующая страница -
+ * задачи с большими id. Id выдаются по возрастанию, поэтому добавление и удаление задач между запросами,
+ * в том числе удаление самой задачи-курсора, не сдвигает и не повторяет уже прочитанное.</p>
+ * <p>Список приоритета упорядочен не по id, поэтому его курсор - {@link Position}: начало, окончание
+ * и id последней полученной задачи на момент чтения. Следующая страница начинается сразу после этого
+ * положения, есть ли там ещё задача-курсор или нет: удалённая или перенесённая задача-курсор не ломает
+ * чтение, а задачи, добавленные или перенесённые в уже прочитанную часть списка, не попадают в следующие
+ * страницы.</p>
+ * <p>Потоки ({@link #stream(Source)}) читают страницами по {@value #STREAM_PAGE} задач: в памяти
+ * одновременно не больше одной страницы.</p>
+ */
+public final class Pages {
+    public static final int STREAM_PAGE = 1_000;
+    /*
+     * Если id в диапазоне после курсора заняты реже, чем один из SPARSE, перебор id медленнее
+     * отбора по всем ключам
+     */
+    private static final int SPARSE = 8;
+
+    private Pages() {
+    }
+
+    /**
+     * Источник страниц: задачи после курсора, не больше limit
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        List<T> page(int cursor, int limit);
+    }
+
+    /**
+     * Курсор списка приоритета: положение задачи в списке - начало и окончание в секундах эпохи (UTC) и id.
+     * Текстовая форма ({@link #toString()}, {@link #parse(String)}) - три числа через точку.
+     */
+    public static final class Position {
+        private final long start;
+        private final long end;
+        private final int id;
+
+        private Position(long start, long end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+        }
+
+        /**
+         * @return положение задачи списка приоритета (у задачи должно быть время начала)
+         */
+        public static Position of(Task task) {
+            return new Position(seconds(task.getStartTime()), seconds(task.getEndTime()), task.getId());
+        }
+
+        /**
+         * @throws IllegalArgumentException если строка - не три числа через точку
+         */
+        public static Position parse(String text) {
+            String[] parts = text.split("\\.");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Неверный формат курсора");
+            }
+            try {
+                return new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверный формат курсора");
+            }
+        }
+
+        long start() {
+            return start;
+        }
+
+        long end() {
+            return end;
+        }
+
+        int id() {
+            return id;
+        }
+
+        /**
+         * Сравнение с задачей в порядке списка приоритета: начало, окончание, id
+         */
+        int compareTo(Task task) {
+            int result = Long.compare(start, seconds(task.getStartTime()));
+            if (result == 0) {
+                result = Long.compare(end, seconds(task.getEndTime()));
+            }
+            return result == 0 ? Integer.compare(id, task.getId()) : result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Position position = (Position) o;
+            return start == position.start && end == position.end && id == position.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(start) * 31 * 31 + Long.hashCode(end) * 31 + id;
+        }
+
+        @Override
+        public String toString() {
+            return start + "." + end + "." + id;
+        }
+
+        private static long seconds(LocalDateTime time) {
+            return time.toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Ленивый поток задач, читаемый страницами из источника
+     */
+    public static <T extends Task> Stream<T> stream(Source<T> source) {
+        return stream(0, source::page, Task::getId);
+    }
+
+    /**
+     * Ленивый поток, читаемый страницами: курсор следующей страницы берётся из последнего элемента
+     *
+     * @param first    курсор первой страницы
+     * @param source   страница после курсора, не больше limit элементов
+     * @param cursorOf курсор, указывающий на элемент
+     */
+    public static <C, T> Stream<T> stream(C first, BiFunction<C, Integer, List<T>> source, Function<T, C> cursorOf) {
+        Iterator<T> iterator = new Iterator<>() {
+            private List<T> page = Collections.emptyList();
+            private int index;
+            private C cursor = first;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                if (index == page.size() && !last) {
+                    page = source.apply(cursor, STREAM_PAGE);
+                    index = 0;
+                    last = page.size() < STREAM_PAGE;
+                    if (!page.isEmpty()) {
+                        cursor = cursorOf.apply(page.get(page.size() - 1));
+                    }
+                }
+                return index < page.size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Страница по возрастанию id из таблицы, id которой выдаются по порядку.
+     * Плотные id перебираются от курсора вверх - O(limit + пропуски); если таблица заполнена редко,
+     * limit наименьших id после курсора отбираются за один проход по ключам. Память - O(limit).
+     *
+     * @param tasks  таблица id -> задача
+     * @param cursor id последней полученной задачи, 0 - с начала
+     * @param limit  наибольший размер страницы
+     * @param nextId следующий выдаваемый id (все id таблицы меньше)
+     */
+    public static <T extends Task> List<T> byId(Map<Integer, T> tasks, int cursor, int limit, int nextId) {
+        checkLimit(limit);
+        int from = Math.max(cursor, 0) + 1;
+        List<T> page = new ArrayList<>(Math.min(limit, tasks.size()));
+        if ((long) nextId - from > (long) SPARSE * tasks.size()) {
+            PriorityQueue<Integer> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+            for (int id : tasks.keySet()) {
+                if (id >= from && (smallest.size() < limit || id < smallest.peek())) {
+                    smallest.add(id);
+                    if (smallest.size() > limit) {
+                        smallest.poll();
+                    }
+                }
+            }
+            List<Integer> ids = new ArrayList<>(smallest);
+            Collections.sort(ids);
+            for (int id : ids) {
+                page.add(tasks.get(id));
+            }
+            return page;
+        }
+        for (int id = from; id < nextId && page.size() < limit; id++) {
+            T task = tasks.get(id);
+            if (task != null) {
+                page.add(task);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Страница по возрастанию id из готового списка (реализация по умолчанию, копирует весь список)
+     */
+    public static <T extends Task> List<T> byId(Collection<T> tasks, int cursor, int limit) {
+        checkLimit(limit);
+        List<T> sorted = new ArrayList<>(tasks);
+        sorted.sort(Comparator.comparingInt(Task::getId));
+        List<T> page = new ArrayList<>();
+        for (T task : sorted) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (task.getId() > cursor) {
+                page.add(task);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Страница списка приоритета после положения (реализация по умолчанию, копирует весь список)
+     *
+     * @param ordered список приоритета
+     * @param after   положение последней полученной задачи или null - с начала
+     */
+    public static List<Task> after(List<Task> ordered, Position after, int limit) {
+        checkLimit(limit);
+        int from = 0;
+        if (after != null) {
+            int low = 0;
+            int high = ordered.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (after.compareTo(ordered.get(middle)) >= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            from = low;
+        }
+        return new ArrayList<>(ordered.subList(from, Math.min(ordered.size(), from + limit)));
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+    }
+}
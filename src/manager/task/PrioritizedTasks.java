@@ -0,0 +1,384 @@
+package manager.task;
+
+import exception.ManagerException;
+import tasks.Task;
+import utils.IntMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Список приоритета задач и подзадач, упорядоченный по времени начала.
+ * <p>Внутри - отсортированная карта интервалов {@code [startTime, endTime)}. Пересекающиеся интервалы
+ * в карту не попадают, поэтому при сортировке по началу концы интервалов тоже идут по возрастанию.
+ * Для проверки новой задачи достаточно одного соседа - последнего интервала, начавшегося раньше
+ * окончания новой задачи: O(log n) вместо сравнения со всеми задачами.</p>
+ * <p>Рядом хранится индекс id -> текущий ключ задачи, поэтому удаление и перестановка
+ * задачи по идентификатору тоже логарифмические, без обхода всего списка.</p>
+ * <p>Свободные промежутки между задачами ведутся в {@link FreeSlots} при каждом изменении списка:
+ * поиск места для новой задачи ({@link #findFreeSlot}) - O(log n).</p>
+ */
+class PrioritizedTasks {
+    private final NavigableMap<Slot, Task> timeline;
+    private final Map<Integer, Slot> slots;
+    private final FreeSlots free = new FreeSlots();
+
+    PrioritizedTasks() {
+        this(new TreeMap<>(), new IntMap<>());
+    }
+
+    private PrioritizedTasks(NavigableMap<Slot, Task> timeline, Map<Integer, Slot> slots) {
+        this.timeline = timeline;
+        this.slots = slots;
+        free.put(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Список приоритета на {@link ConcurrentSkipListMap}: {@link #toList()} можно вызывать без блокировки,
+     * одновременно с изменениями (список соберётся по слабо согласованному обходу).
+     * Изменяющие методы и {@link #findFreeSlot} вызывающая сторона выполняет под одной общей блокировкой,
+     * т.к. проверка пересечения и вставка должны быть одним действием.
+     *
+     * @return пустой список приоритета
+     */
+    static PrioritizedTasks concurrent() {
+        return new PrioritizedTasks(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Добавление задачи в список приоритета с проверкой пересечения по времени
+     *
+     * @param task задача для добавления
+     * @throws ManagerException если время выполнения задачи пересекается с другой задачей
+     */
+    void add(Task task) {
+        put(task, Slot.of(task));
+    }
+
+    /**
+     * Добавление задачи под другим id (задача, id которой ещё не выдан, например при проверке пакета)
+     *
+     * @throws ManagerException если время выполнения задачи пересекается с другой задачей
+     */
+    void add(Task task, int id) {
+        Slot slot = new Slot(seconds(task.getStartTime()), seconds(task.getEndTime()), id);
+        Task crossing = findCrossing(slot);
+        if (crossing != null) {
+            throw new ManagerException("Task[" + task + "] overlaps Task[" + crossing + "]");
+        }
+        link(slot, task);
+        slots.put(id, slot);
+    }
+
+    /**
+     * Перестановка задачи в списке приоритета после обновления её времени.
+     * Если новое время пересекается с другой задачей, в списке остаётся прежняя версия задачи.
+     *
+     * @param task обновлённая задача
+     * @throws ManagerException если новое время выполнения задачи пересекается с другой задачей
+     */
+    void update(Task task) {
+        Slot previous = slots.get(task.getId());
+        if (previous == null) {
+            add(task);
+            return;
+        }
+        Task previousTask = unlink(previous);
+        try {
+            put(task, Slot.of(task));
+        } catch (ManagerException e) {
+            link(previous, previousTask);
+            throw e;
+        }
+    }
+
+    /**
+     * Массовое добавление задач (загрузка снимка). В пустой список задачи добавляются после одной сортировки:
+     * пересечения проверяются между соседями за линейный проход, без поиска в дереве на каждую задачу.
+     *
+     * @param tasks задачи для добавления
+     * @throws ManagerException если время выполнения задач пересекается
+     */
+    void addAll(Collection<? extends Task> tasks) {
+        if (!timeline.isEmpty()) {
+            for (Task task : tasks) {
+                add(task);
+            }
+            return;
+        }
+        List<Map.Entry<Slot, Task>> sorted = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            sorted.add(Map.entry(Slot.of(task), task));
+        }
+        sorted.sort(Map.Entry.comparingByKey());
+        Map.Entry<Slot, Task> previous = null;
+        for (Map.Entry<Slot, Task> entry : sorted) {
+            if (previous != null && previous.getKey().end > entry.getKey().start) {
+                throw new ManagerException("Task[" + entry.getValue().getId() + "] overlaps Task["
+                        + previous.getValue() + "]");
+            }
+            previous = entry;
+        }
+        free.clear();
+        long previousEnd = Long.MIN_VALUE;
+        for (Map.Entry<Slot, Task> entry : sorted) {
+            Slot slot = entry.getKey();
+            timeline.put(slot, entry.getValue());
+            slots.put(entry.getValue().getId(), slot);
+            if (slot.start > previousEnd) {
+                free.put(previousEnd, slot.start);
+            }
+            previousEnd = slot.end;
+        }
+        free.put(previousEnd, Long.MAX_VALUE);
+    }
+
+    /**
+     * Проверка набора задач перед добавлением пакетом, без изменения списка: задачи сортируются
+     * и сравниваются с соседями между собой, затем каждая - с задачами списка, кроме исключённых
+     * (их прежние версии пакет заменяет или удаляет). Для каждой задачи просматриваются только
+     * интервалы списка, заканчивающиеся после её начала: O(k log k + k log n) без учёта исключённых.
+     *
+     * @param tasks    задачи пакета
+     * @param excluded id задач списка, которые в проверке не участвуют
+     * @throws ManagerException если задачи пересекаются между собой или с задачами списка
+     */
+    void checkAll(Collection<? extends Task> tasks, IntPredicate excluded) {
+        List<Task> sorted = new ArrayList<>(tasks);
+        sort(sorted);
+        Task latest = null;
+        for (Task task : sorted) {
+            Slot slot = Slot.of(task);
+            if (latest != null && seconds(latest.getEndTime()) > slot.start) {
+                throw new ManagerException("Task[" + task + "] overlaps Task[" + latest + "]");
+            }
+            if (latest == null || seconds(task.getEndTime()) >= seconds(latest.getEndTime())) {
+                latest = task;
+            }
+            NavigableMap<Slot, Task> before = timeline.headMap(new Slot(slot.end, Long.MIN_VALUE, Integer.MIN_VALUE), false);
+            for (Map.Entry<Slot, Task> entry : before.descendingMap().entrySet()) {
+                if (entry.getKey().end <= slot.start) {
+                    break;
+                }
+                if (!excluded.test(entry.getKey().id)) {
+                    throw new ManagerException("Task[" + task + "] overlaps Task[" + entry.getValue() + "]");
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаление задачи из списка приоритета по идентификатору
+     *
+     * @param id идентификатор задачи
+     */
+    void remove(int id) {
+        Slot slot = slots.remove(id);
+        if (slot != null) {
+            unlink(slot);
+        }
+    }
+
+    /**
+     * Получение копии списка приоритетов
+     *
+     * @return список задач по времени начала (копия)
+     */
+    List<Task> toList() {
+        return List.copyOf(timeline.values());
+    }
+
+    /**
+     * Страница списка приоритета после положения: O(log n + limit). Задача, стоявшая в положении,
+     * может быть уже удалена или перенесена - страница всё равно начинается сразу после него.
+     *
+     * @param after положение последней полученной задачи, null - с начала
+     * @param limit наибольший размер страницы
+     */
+    List<Task> page(Pages.Position after, int limit) {
+        Pages.checkLimit(limit);
+        NavigableMap<Slot, Task> tail = timeline;
+        if (after != null) {
+            tail = timeline.tailMap(new Slot(after.start(), after.end(), after.id()), false);
+        }
+        List<Task> page = new ArrayList<>(Math.min(limit, timeline.size()));
+        for (Task task : tail.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(task);
+        }
+        return page;
+    }
+
+    /**
+     * Задачи, начинающиеся в промежутке {@code [from, to)}, в порядке списка: O(log n + k)
+     *
+     * @param from начало промежутка или null - с начала списка
+     * @param to   конец промежутка (не включая) или null - до конца списка
+     */
+    List<Task> between(LocalDateTime from, LocalDateTime to) {
+        NavigableMap<Slot, Task> range = timeline;
+        if (from != null) {
+            range = range.tailMap(new Slot(seconds(from), Long.MIN_VALUE, Integer.MIN_VALUE), true);
+        }
+        if (to != null) {
+            range = range.headMap(new Slot(seconds(to), Long.MIN_VALUE, Integer.MIN_VALUE), false);
+        }
+        return new ArrayList<>(range.values());
+    }
+
+    /**
+     * Самое раннее время начала не раньше earliest, с которого задача длительностью duration
+     * ни с чем не пересекается: O(log n) по индексу свободных промежутков.
+     * Длительность, как и в {@link Task#getEndTime()}, учитывается целыми минутами.
+     *
+     * @param duration длительность задачи
+     * @param earliest начало не раньше
+     * @throws ManagerException если до конца шкалы времени места нет
+     */
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime earliest) {
+        long from = seconds(earliest);
+        long length = Math.max(duration.toMinutes(), 0) * 60;
+        if (length == 0) {
+            // задача без длительности помещается и на стыке соседних задач, где промежутка нет
+            Map.Entry<Slot, Task> before = timeline.lowerEntry(new Slot(from, Long.MIN_VALUE, Integer.MIN_VALUE));
+            long end = before == null ? from : Math.max(before.getKey().end, from);
+            return end == from ? earliest : LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC);
+        }
+        long start = free.firstFit(from, length);
+        if (start == Long.MIN_VALUE) {
+            throw new ManagerException("Нет свободного промежутка после " + earliest);
+        }
+        return start == from ? earliest : LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Сортировка задач в порядке списка приоритета
+     */
+    static void sort(List<? extends Task> tasks) {
+        tasks.sort(Comparator.comparing(Slot::of));
+    }
+
+    private void put(Task task, Slot slot) {
+        Task crossing = findCrossing(slot);
+        if (crossing != null) {
+            throw new ManagerException("Task[" + task.getId() + "] overlaps Task[" + crossing + "]");
+        }
+        link(slot, task);
+        slots.put(task.getId(), slot);
+    }
+
+    /**
+     * Вставка интервала в карту: промежуток между соседями [P, N) делится на [P, start) и [end, N).
+     * Концы интервалов идут по возрастанию вместе с началами, поэтому свободное время
+     * меняется только между соседями.
+     */
+    private void link(Slot slot, Task task) {
+        timeline.put(slot, task);
+        long previousEnd = previousEnd(slot);
+        long nextStart = nextStart(slot);
+        if (nextStart > previousEnd) {
+            free.remove(previousEnd);
+        }
+        if (slot.start > previousEnd) {
+            free.put(previousEnd, slot.start);
+        }
+        if (nextStart > slot.end) {
+            free.put(slot.end, nextStart);
+        }
+    }
+
+    /**
+     * Удаление интервала из карты: промежутки [P, start) и [end, N) сливаются в [P, N)
+     */
+    private Task unlink(Slot slot) {
+        Task task = timeline.remove(slot);
+        if (task == null) {
+            return null;
+        }
+        long previousEnd = previousEnd(slot);
+        long nextStart = nextStart(slot);
+        if (slot.start > previousEnd) {
+            free.remove(previousEnd);
+        }
+        if (nextStart > slot.end) {
+            free.remove(slot.end);
+        }
+        if (nextStart > previousEnd) {
+            free.put(previousEnd, nextStart);
+        }
+        return task;
+    }
+
+    private long previousEnd(Slot slot) {
+        Slot previous = timeline.lowerKey(slot);
+        return previous == null ? Long.MIN_VALUE : previous.end;
+    }
+
+    private long nextStart(Slot slot) {
+        Slot next = timeline.higherKey(slot);
+        return next == null ? Long.MAX_VALUE : next.start;
+    }
+
+    /**
+     * Поиск задачи, с которой пересекается интервал.
+     * Интервалы полуоткрытые: задача, закончившаяся ровно в момент старта другой, пересечением не считается.
+     *
+     * @param slot проверяемый интервал
+     * @return пересекающаяся задача или null
+     */
+    private Task findCrossing(Slot slot) {
+        Map.Entry<Slot, Task> before = timeline.lowerEntry(new Slot(slot.end, Long.MIN_VALUE, Integer.MIN_VALUE));
+        if (before != null && before.getKey().end > slot.start) {
+            return before.getValue();
+        }
+        return null;
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Ключ списка приоритета: начало и конец задачи в секундах эпохи (UTC) и её идентификатор.
+     */
+    private static final class Slot implements Comparable<Slot> {
+        private final long start;
+        private final long end;
+        private final int id;
+
+        private Slot(long start, long end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+        }
+
+        static Slot of(Task task) {
+            return new Slot(seconds(task.getStartTime()), seconds(task.getEndTime()), task.getId());
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int result = Long.compare(start, other.start);
+            if (result == 0) {
+                result = Long.compare(end, other.end);
+            }
+            if (result == 0) {
+                result = Integer.compare(id, other.id);
+            }
+            return result;
+        }
+    }
+}
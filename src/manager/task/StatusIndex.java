@@ -0,0 +1,57 @@
+package manager.task;
+
+import tasks.Status;
+import utils.IntLinkedSet;
+
+import java.util.Arrays;
+
+/**
+ * Вторичный индекс статус -> id задач одного типа.
+ * <p>На каждый статус - {@link IntLinkedSet}: добавление, перенос и удаление id - O(1).
+ * Прежний статус задачи не запоминается: при переносе id удаляется из множеств всех остальных статусов,
+ * их всего три. Поэтому индекс верен, даже если объект задачи изменили на месте до вызова update.</p>
+ */
+class StatusIndex {
+    private static final Status[] STATUSES = Status.values();
+
+    private final IntLinkedSet[] ids = new IntLinkedSet[STATUSES.length];
+
+    StatusIndex() {
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new IntLinkedSet();
+        }
+    }
+
+    /**
+     * Учёт текущего статуса задачи
+     */
+    void put(int id, Status status) {
+        for (Status other : STATUSES) {
+            if (other != status) {
+                ids[other.ordinal()].removeInt(id);
+            }
+        }
+        ids[status.ordinal()].addInt(id);
+    }
+
+    void remove(int id) {
+        for (IntLinkedSet set : ids) {
+            set.removeInt(id);
+        }
+    }
+
+    void clear() {
+        for (IntLinkedSet set : ids) {
+            set.clear();
+        }
+    }
+
+    /**
+     * @return id задач со статусом по возрастанию
+     */
+    int[] ids(Status status) {
+        int[] result = ids[status.ordinal()].toIntArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
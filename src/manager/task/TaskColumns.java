@@ -0,0 +1,48 @@
+package manager.task;
+
+/**
+ * Столбцы задач и подзадач для {@link ColumnarTaskManager}: строка {@code id - 1},
+ * в строке - тип, статус (порядковый номер), начало и длительность в минутах, id эпика, заголовок и описание.
+ * Строка эпика хранит только тип: сам эпик менеджер держит объектом.
+ */
+interface TaskColumns {
+    byte FREE = 0;
+    byte TASK = 1;
+    byte SUBTASK = 2;
+    byte EPIC = 3;
+
+    /**
+     * @return номер новой пустой строки (FREE)
+     */
+    int newRow();
+
+    /**
+     * @return количество выданных строк
+     */
+    int rows();
+
+    byte type(int row);
+
+    byte status(int row);
+
+    long start(int row);
+
+    int duration(int row);
+
+    int epicId(int row);
+
+    String title(int row);
+
+    String description(int row);
+
+    /**
+     * Запись всей строки
+     */
+    void write(int row, byte type, byte status, long start, int duration, int epicId,
+               String title, String description);
+
+    /**
+     * Освобождение строки: тип FREE, данные строки больше не нужны
+     */
+    void free(int row);
+}
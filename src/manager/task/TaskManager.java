@@ -1,10 +1,20 @@
 package manager.task;
 
+import exception.ManagerException;
 import tasks.Epic;
+import tasks.Status;
 import tasks.SubTask;
 import tasks.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface TaskManager {
 
@@ -51,4 +61,173 @@ public interface TaskManager {
   void updateEpicStatus(Epic epic); // Проверить статус главной задачи
 
   List<Task> getPrioritizedTasks();
+
+  /*
+   * Постраничное чтение (см. Pages): cursor - id последней полученной задачи, 0 - с начала;
+   * страницы задач, эпиков и подзадач упорядочены по id. Курсор списка приоритета - положение
+   * последней полученной задачи (Pages.Position), null - с начала. Реализации по умолчанию копируют весь список.
+   */
+
+  default List<Task> getTasks(int cursor, int limit) { // Страница задач после курсора
+    return Pages.byId(getAllTasks(), cursor, limit);
+  }
+
+  default List<Epic> getEpics(int cursor, int limit) { // Страница главных задач после курсора
+    return Pages.byId(getAllEpics(), cursor, limit);
+  }
+
+  default List<SubTask> getSubTasks(int cursor, int limit) { // Страница подзадач после курсора
+    return Pages.byId(getAllSubTasks(), cursor, limit);
+  }
+
+  default List<Task> getPrioritizedTasks(Pages.Position after, int limit) { // Страница списка приоритета после положения
+    return Pages.after(getPrioritizedTasks(), after, limit);
+  }
+
+  default Stream<Task> streamTasks() { // Все задачи, читаются страницами
+    return Pages.stream(this::getTasks);
+  }
+
+  default Stream<Epic> streamEpics() { // Все главные задачи, читаются страницами
+    return Pages.stream(this::getEpics);
+  }
+
+  default Stream<SubTask> streamSubTasks() { // Все подзадачи, читаются страницами
+    return Pages.stream(this::getSubTasks);
+  }
+
+  default Stream<Task> streamPrioritizedTasks() { // Список приоритета, читается страницами
+    return Pages.stream(null, this::getPrioritizedTasks, Pages.Position::of);
+  }
+
+  /*
+   * Выборки по статусу и времени начала. Реализации по умолчанию фильтруют полные списки,
+   * InMemoryTaskManager отвечает по вторичным индексам.
+   */
+
+  default List<Task> getTasksByStatus(Status status) { // Задачи со статусом, по возрастанию id
+    return getAllTasks().stream()
+            .filter(task -> task.getStatus() == status)
+            .sorted(Comparator.comparingInt(Task::getId))
+            .collect(Collectors.toList());
+  }
+
+  default List<Epic> getEpicsByStatus(Status status) { // Главные задачи со статусом, по возрастанию id
+    return getAllEpics().stream()
+            .filter(epic -> epic.getStatus() == status)
+            .sorted(Comparator.comparingInt(Task::getId))
+            .collect(Collectors.toList());
+  }
+
+  default List<SubTask> getSubTasksByStatus(Status status) { // Подзадачи со статусом, по возрастанию id
+    return getAllSubTasks().stream()
+            .filter(subTask -> subTask.getStatus() == status)
+            .sorted(Comparator.comparingInt(Task::getId))
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Выборка из списка приоритета (задачи и подзадачи) в порядке приоритета.
+   *
+   * @param status статус или null - любой
+   * @param from   начало не раньше from или null - без ограничения
+   * @param to     начало раньше to или null - без ограничения
+   */
+  default List<Task> getPrioritizedTasks(Status status, LocalDateTime from, LocalDateTime to) {
+    return getPrioritizedTasks().stream()
+            .filter(task -> status == null || task.getStatus() == status)
+            .filter(task -> from == null || !task.getStartTime().isBefore(from))
+            .filter(task -> to == null || task.getStartTime().isBefore(to))
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Страница выборки из списка приоритета после положения: выборка по тем же правилам,
+   * что у {@link #getPrioritizedTasks(Status, LocalDateTime, LocalDateTime)}, в ответе - не больше limit задач.
+   *
+   * @param after положение последней полученной задачи ({@link Pages.Position}) или null - с начала
+   * @param limit размер страницы
+   */
+  default List<Task> getPrioritizedTasks(Status status, LocalDateTime from, LocalDateTime to,
+                                         Pages.Position after, int limit) {
+    return Pages.after(getPrioritizedTasks(status, from, to), after, limit);
+  }
+
+  /**
+   * Поиск места в списке приоритета: самое раннее начало не раньше earliest, с которого задача
+   * длительностью duration ни с чем не пересекается. Длительность учитывается целыми минутами,
+   * как в {@link Task#getEndTime()}. Реализация по умолчанию проходит весь список приоритета,
+   * InMemoryTaskManager и ConcurrentTaskManager ищут по индексу свободных промежутков.
+   *
+   * @param duration длительность задачи
+   * @param earliest начало не раньше
+   * @return время начала
+   */
+  default LocalDateTime findFreeSlot(Duration duration, LocalDateTime earliest) {
+    LocalDateTime start = earliest;
+    LocalDateTime end = start.plusMinutes(duration.toMinutes());
+    for (Task task : getPrioritizedTasks()) {
+      if (!task.getStartTime().isBefore(end)) {
+        break;
+      }
+      if (task.getEndTime().isAfter(start)) {
+        start = task.getEndTime();
+        end = start.plusMinutes(duration.toMinutes());
+      }
+    }
+    return start;
+  }
+
+  default Task addTaskToFreeSlot(Task task, LocalDateTime earliest) { // Создание задачи в первом свободном месте
+    return addToFreeSlot(task, earliest, this::addTask);
+  }
+
+  default SubTask addSubTaskToFreeSlot(SubTask subTask, LocalDateTime earliest) { // Создание подзадачи в первом свободном месте
+    return addToFreeSlot(subTask, earliest, this::addSubTask);
+  }
+
+  /**
+   * Применение пакета изменений целиком или никак (см. {@link Batch}): пакет проверяется до первого
+   * изменения, затем применяется по порядку. Реализация по умолчанию применяет пакет обычными методами,
+   * поэтому проверяет его пошагово на копии списка приоритета: пакет, промежуточный шаг которого даёт
+   * пересечение (например, две задачи меняются временем), отклоняется. Если менеджер меняют другие потоки,
+   * применение может не совпасть с проверкой. InMemoryTaskManager и наследники проверяют только итоговый
+   * набор задач и откладывают список приоритета, пересчёт эпиков и сохранение до конца пакета.
+   *
+   * @throws ManagerException если пакет нельзя применить целиком
+   */
+  default void batch(Batch batch) {
+    Map<Integer, Task> current = new HashMap<>();
+    getAllTasks().forEach(task -> current.put(task.getId(), task));
+    getAllEpics().forEach(epic -> current.put(epic.getId(), epic));
+    getAllSubTasks().forEach(subTask -> current.put(subTask.getId(), subTask));
+    PrioritizedTasks timeline = new PrioritizedTasks();
+    timeline.addAll(getPrioritizedTasks());
+    batch.validate(current::get, timeline, true);
+    batch.applyTo(this);
+  }
+
+  /**
+   * Задача получает время начала из {@link #findFreeSlot} и добавляется. Если место успел занять
+   * другой поток, поиск повторяется; если место по-прежнему свободно, ошибка добавления не связана
+   * со временем и пробрасывается.
+   */
+  private <T extends Task> T addToFreeSlot(T task, LocalDateTime earliest, UnaryOperator<T> add) {
+    if (task == null) {
+      throw new ManagerException("Задача не создана");
+    }
+    LocalDateTime start = findFreeSlot(task.getDuration(), earliest);
+    while (true) {
+      task.setStartTime(start);
+      try {
+        return add.apply(task);
+      } catch (ManagerException e) {
+        LocalDateTime again = findFreeSlot(task.getDuration(), earliest);
+        if (again.equals(start)) {
+          throw e;
+        }
+        start = again;
+      }
+    }
+  }
 }
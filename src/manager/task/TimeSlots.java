@@ -0,0 +1,214 @@
+package manager.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Список приоритета в примитивных массивах для {@link ColumnarTaskManager}.
+ * <p>Интервалы {@code [start, end)} в минутах эпохи вместе с id задачи хранятся отсортированными
+ * по (start, end, id) в блоках по {@value #BLOCK} записей: три массива на блок, без объекта на запись.
+ * Блок находится двоичным поиском по первым ключам блоков, место внутри блока - двоичным поиском;
+ * вставка и удаление сдвигают записи только одного блока. Полный блок делится пополам
+ * (при добавлении в конец списка заводится новый блок), опустевший блок удаляется.</p>
+ * <p>Проверка пересечения - как у {@link PrioritizedTasks}: достаточно последнего интервала,
+ * начавшегося раньше окончания нового.</p>
+ */
+class TimeSlots {
+    private static final int BLOCK = 256;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Поиск задачи, с которой пересекается интервал. Интервалы полуоткрытые.
+     *
+     * @return id пересекающейся задачи или 0
+     */
+    int findCrossing(long start, long end) {
+        int b = lastBlockBelow(end, Long.MIN_VALUE, Integer.MIN_VALUE, false);
+        if (b < 0) {
+            return 0;
+        }
+        Block block = blocks.get(b);
+        int before = block.insertionPoint(end, Long.MIN_VALUE, Integer.MIN_VALUE) - 1;
+        return block.ends[before] > start ? block.ids[before] : 0;
+    }
+
+    /**
+     * Вставка интервала без проверки пересечения
+     */
+    void add(long start, long end, int id) {
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+        }
+        int b = Math.max(lastBlockBelow(start, end, id, true), 0);
+        Block block = blocks.get(b);
+        int position = block.insertionPoint(start, end, id);
+        if (block.size == BLOCK) {
+            Block next = new Block();
+            if (position == BLOCK && b == blocks.size() - 1) {
+                blocks.add(next);
+                block = next;
+                position = 0;
+            } else {
+                int half = BLOCK / 2;
+                next.size = BLOCK - half;
+                System.arraycopy(block.starts, half, next.starts, 0, next.size);
+                System.arraycopy(block.ends, half, next.ends, 0, next.size);
+                System.arraycopy(block.ids, half, next.ids, 0, next.size);
+                block.size = half;
+                blocks.add(b + 1, next);
+                if (position > half) {
+                    block = next;
+                    position -= half;
+                }
+            }
+        }
+        block.insert(position, start, end, id);
+        size++;
+    }
+
+    /**
+     * @return true - интервал был в списке и удалён
+     */
+    boolean remove(long start, long end, int id) {
+        int b = lastBlockBelow(start, end, id, true);
+        if (b < 0) {
+            return false;
+        }
+        Block block = blocks.get(b);
+        int position = block.insertionPoint(start, end, id);
+        if (position == block.size || block.compare(position, start, end, id) != 0) {
+            return false;
+        }
+        block.delete(position);
+        if (block.size == 0) {
+            blocks.remove(b);
+        }
+        size--;
+        return true;
+    }
+
+    void clear() {
+        blocks.clear();
+        size = 0;
+    }
+
+    /**
+     * Обход id задач по возрастанию времени начала
+     */
+    void forEach(IntConsumer action) {
+        for (Block block : blocks) {
+            for (int i = 0; i < block.size; i++) {
+                action.accept(block.ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Id задач, идущих в списке после ключа (start, end, id)
+     *
+     * @param limit наибольшее количество
+     */
+    int[] after(long start, long end, int id, int limit) {
+        int[] page = new int[Math.min(limit, size)];
+        int count = 0;
+        int b = Math.max(lastBlockBelow(start, end, id, true), 0);
+        int position = 0;
+        if (b < blocks.size()) {
+            Block block = blocks.get(b);
+            position = block.insertionPoint(start, end, id);
+            if (position < block.size && block.compare(position, start, end, id) == 0) {
+                position++;
+            }
+        }
+        for (; b < blocks.size() && count < page.length; b++, position = 0) {
+            Block block = blocks.get(b);
+            for (int i = position; i < block.size && count < page.length; i++) {
+                page[count++] = block.ids[i];
+            }
+        }
+        return count == page.length ? page : Arrays.copyOf(page, count);
+    }
+
+    /**
+     * @param inclusive true - первый ключ блока может совпадать с искомым
+     * @return индекс последнего блока, первый ключ которого меньше (или равен) искомого, или -1
+     */
+    private int lastBlockBelow(long start, long end, int id, boolean inclusive) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = blocks.get(middle).compare(0, start, end, id);
+            if (compare < 0 || inclusive && compare == 0) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    private static final class Block {
+        private final long[] starts = new long[BLOCK];
+        private final long[] ends = new long[BLOCK];
+        private final int[] ids = new int[BLOCK];
+        private int size;
+
+        private int compare(int i, long start, long end, int id) {
+            int result = Long.compare(starts[i], start);
+            if (result == 0) {
+                result = Long.compare(ends[i], end);
+            }
+            if (result == 0) {
+                result = Integer.compare(ids[i], id);
+            }
+            return result;
+        }
+
+        /**
+         * @return количество ключей блока, меньших искомого
+         */
+        private int insertionPoint(long start, long end, int id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, start, end, id) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void insert(int position, long start, long end, int id) {
+            int tail = size - position;
+            System.arraycopy(starts, position, starts, position + 1, tail);
+            System.arraycopy(ends, position, ends, position + 1, tail);
+            System.arraycopy(ids, position, ids, position + 1, tail);
+            starts[position] = start;
+            ends[position] = end;
+            ids[position] = id;
+            size++;
+        }
+
+        private void delete(int position) {
+            int tail = size - position - 1;
+            System.arraycopy(starts, position + 1, starts, position, tail);
+            System.arraycopy(ends, position + 1, ends, position, tail);
+            System.arraycopy(ids, position + 1, ids, position, tail);
+            size--;
+        }
+    }
+}
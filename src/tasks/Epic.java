@@ -1,11 +1,16 @@
 package tasks;
 
+import utils.IntLinkedSet;
+import utils.IntMap;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import static java.time.Duration.between;
 import static java.time.Duration.ofMinutes;
@@ -14,6 +19,16 @@ import static tasks.TypeTask.EPIC;
 public class Epic extends Task {
     private List<Integer> subTaskIds;
     private LocalDateTime endTime;
+    /*
+     * Расчётные поля по подзадачам: счётчики статусов, начала и окончания подзадач (мультимножества).
+     * Обновляются при каждом изменении подзадачи, поэтому статус и время эпика не пересчитываются
+     * обходом всех подзадач. Вклад каждой подзадачи запоминается, т.к. объект подзадачи
+     * могут изменить на месте до вызова updateSubTask.
+     */
+    private final transient int[] statusCounters = new int[Status.values().length];
+    private final transient NavigableMap<LocalDateTime, Integer> subTaskStarts = new TreeMap<>();
+    private final transient NavigableMap<LocalDateTime, Integer> subTaskEnds = new TreeMap<>();
+    private final transient IntMap<Contribution> contributions = new IntMap<>();
 
     /**
      * @param title       Название задачи
@@ -21,7 +36,7 @@ public class Epic extends Task {
      */
     public Epic(String title, String description) {
         super(title, description);
-        this.subTaskIds = new ArrayList<>();
+        this.subTaskIds = new IntLinkedSet();
         this.startTime = LocalDateTime.ofEpochSecond(0L,0, ZoneOffset.UTC);
         this.duration = Duration.parse("PT0S");
         this.endTime = this.startTime.plusMinutes(this.duration.toMinutes());
@@ -36,21 +51,127 @@ public class Epic extends Task {
     }
 
     public List<Integer> getSubTaskIds() {
-        return subTaskIds;
+        return children();
     }
 
+    /**
+     * Список подзадач как {@link IntLinkedSet}. Эпик из JSON приходит с обычным списком,
+     * он заменяется при первом обращении.
+     */
+    private IntLinkedSet children() {
+        if (!(subTaskIds instanceof IntLinkedSet)) {
+            subTaskIds = subTaskIds == null ? new IntLinkedSet() : new IntLinkedSet(subTaskIds);
+        }
+        return (IntLinkedSet) subTaskIds;
+    }
+
+    /**
+     * Отвязка подзадачи от эпика, O(1)
+     *
+     * @param id идентификатор подзадачи
+     */
     public void removeSubtaskId(Integer id) {
-        if(!subTaskIds.isEmpty()) {
-            this.subTaskIds.remove(id);
+        children().removeInt(id);
+        uncount(id);
+    }
+
+    /**
+     * Привязка подзадачи к эпику или учёт её новой версии.
+     * O(log k) по количеству подзадач эпика.
+     *
+     * @param subTask подзадача эпика
+     */
+    public void putSubTask(SubTask subTask) {
+        int id = subTask.getId();
+        if (!contributions.containsKey(id)) {
+            children().addInt(id);
+        }
+        uncount(id);
+        Contribution contribution = new Contribution(subTask);
+        contributions.put(id, contribution);
+        statusCounters[contribution.status.ordinal()]++;
+        increment(subTaskStarts, contribution.startTime);
+        increment(subTaskEnds, contribution.endTime);
+    }
+
+    /**
+     * Отвязка всех подзадач эпика
+     */
+    public void clearSubTasks() {
+        children().clear();
+        contributions.clear();
+        Arrays.fill(statusCounters, 0);
+        subTaskStarts.clear();
+        subTaskEnds.clear();
+    }
+
+    /**
+     * Статус эпика по счётчикам статусов подзадач
+     * <p>ЕСЛИ (подзадач нет ИЛИ все подзадачи NEW) ТО статус-NEW</p>
+     * <p>ЕСЛИ (Все подзадачи завершены) ТО статус-DONE</p>
+     * Во всех остальных случаях статус-IN_PROGRESS;
+     *
+     * @return расчётный статус
+     */
+    public Status calculateStatus() {
+        int count = contributions.size();
+        if (count == statusCounters[Status.NEW.ordinal()]) return Status.NEW;
+        if (count == statusCounters[Status.DONE.ordinal()]) return Status.DONE;
+        return Status.IN_PROGRESS;
+    }
+
+    /**
+     * @return дата старта самой ранней подзадачи или null, если подзадач нет
+     */
+    public LocalDateTime getSubTasksStartTime() {
+        return subTaskStarts.isEmpty() ? null : subTaskStarts.firstKey();
+    }
+
+    /**
+     * @return время окончания самой поздней подзадачи или null, если подзадач нет
+     */
+    public LocalDateTime getSubTasksEndTime() {
+        return subTaskEnds.isEmpty() ? null : subTaskEnds.lastKey();
+    }
+
+    private void uncount(int id) {
+        Contribution previous = contributions.remove(id);
+        if (previous != null) {
+            statusCounters[previous.status.ordinal()]--;
+            decrement(subTaskStarts, previous.startTime);
+            decrement(subTaskEnds, previous.endTime);
         }
     }
 
+    private static void increment(NavigableMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.merge(time, 1, Integer::sum);
+    }
+
+    private static void decrement(NavigableMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
+
     public void setStartEndTime(LocalDateTime startTime, LocalDateTime endTime) {
         this.startTime = startTime;
         this.duration = ofMinutes(between(startTime, endTime).toMinutes());
         this.endTime = endTime;
     }
 
+    /**
+     * Вклад подзадачи в расчётные поля эпика на момент последнего учёта
+     */
+    private static final class Contribution {
+        private final Status status;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private Contribution(SubTask subTask) {
+            this.status = subTask.getStatus();
+            this.startTime = subTask.getStartTime();
+            this.endTime = subTask.getEndTime();
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
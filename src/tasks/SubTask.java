@@ -1,5 +1,6 @@
 package tasks;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -21,6 +22,19 @@ public class SubTask extends Task{
         this.epicId = epicId;
     }
 
+    /**
+     * Full version Constructor с готовой длительностью, без разбора строки
+     * @param title       Название задачи
+     * @param description Описание задачи
+     * @param startTime   Начало выполнения задачи (дата)
+     * @param duration    Длительность выполнения
+     * @param epicId      Принадлежность к главной задаче (epic)
+     */
+    public SubTask(String title, String description, LocalDateTime startTime, Duration duration, int epicId) {
+        super(title, description, startTime, duration);
+        this.epicId = epicId;
+    }
+
     public SubTask() {
         super();
     }
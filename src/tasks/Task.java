@@ -42,6 +42,21 @@ public class Task {
         this.duration = Duration.parse(duration);
     }
 
+    /**
+     * Full - Конструктор задачи (TASK, SUBTASK) с готовой длительностью, без разбора строки
+     * @param title         Название задачи
+     * @param description   Описание задачи
+     * @param startTime     Начало выполнения задачи (дата)
+     * @param duration      Длительность выполнения
+     */
+    public Task(String title, String description, LocalDateTime startTime, Duration duration) {
+        this.title = title;
+        this.description = description;
+        this.status = NEW;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
     /**
      * Standard - конструктор задачи (EPIC)
      * @param title         Номер задачи
@@ -99,6 +114,10 @@ public class Task {
         return this.startTime;
     }
 
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
     public Duration getDuration() {
         return this.duration;
     }
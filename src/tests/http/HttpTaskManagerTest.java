@@ -1,5 +1,6 @@
 package http;
 
+import exception.ManagerException;
 import manager.Managers;
 import manager.TaskManagerTest;
 import manager.history.HistoryManager;
@@ -8,14 +9,34 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
+import tasks.Status;
 import tasks.SubTask;
 import tasks.Task;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HttpTaskManagerTest<T extends TaskManagerTest<HttpTaskManager>> {
     private KVServer server;
@@ -86,4 +107,222 @@ class HttpTaskManagerTest<T extends TaskManagerTest<HttpTaskManager>> {
         List<Task> list = manager.getHistory();
         assertEquals(manager.getAllSubTasks(), list);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRestoreBoardFromPerTaskKeys() throws IOException, InterruptedException {
+        Task task = manager.addTask(new Task("Task 1", "Description of Task 1",
+                LocalDateTime.of(2022, 12, 30, 19, 0, 0), "PT15M"));
+        Task removed = manager.addTask(new Task("Task 2", "Description of Task 2",
+                LocalDateTime.of(2022, 12, 30, 19, 30, 0), "PT30M"));
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        SubTask subTask1 = manager.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                LocalDateTime.of(2022, 12, 31, 12, 0, 0), "PT20M", epic.getId()));
+        SubTask subTask2 = manager.addSubTask(new SubTask("SubTask 2", "Description by SubTask 2",
+                LocalDateTime.of(2022, 12, 31, 13, 0, 0), "PT20M", epic.getId()));
+        subTask1.setStatus(Status.DONE);
+        manager.updateSubTask(subTask1);
+        manager.deleteSubTask(subTask2.getId());
+        manager.deleteTask(removed.getId());
+        manager.getEpic(epic.getId());
+        manager.getTask(task.getId());
+
+        TaskManager loaded = new HttpTaskManager(Managers.getDefaultHistory());
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals(List.of(subTask1), loaded.getAllSubTasks());
+        assertEquals(List.of(epic), loaded.getAllEpics());
+        Epic loadedEpic = loaded.getAllEpics().get(0);
+        assertEquals(Status.DONE, loadedEpic.getStatus());
+        assertEquals(subTask1.getStartTime(), loadedEpic.getStartTime());
+        assertEquals(List.of(epic, task), loaded.getHistory());
+        assertEquals(manager.getPrioritizedTasks(), loaded.getPrioritizedTasks());
+        Task next = loaded.addTask(new Task("Task 3", "Description of Task 3",
+                LocalDateTime.of(2023, 1, 1, 10, 0, 0), "PT15M"));
+        assertEquals(subTask1.getId() + 1, next.getId());
+        assertEquals(next, new HttpTaskManager(Managers.getDefaultHistory()).getTask(next.getId()));
+    }
+
+    @Test
+    public void shouldSaveAndLoadManyKeysInOneRequest() throws IOException, InterruptedException {
+        KVTaskClient client = new KVTaskClient();
+        client.putAll(Map.of("a", "{\"name\":\"A\"}", "b", "[1,2]"));
+        assertEquals(Map.of("a", "{\"name\":\"A\"}", "b", "[1,2]"), client.loadAll(List.of("a", "b", "c")));
+        assertEquals("[1,2]", client.load("b"));
+        assertEquals(Map.of(), client.loadAll(List.of("c")));
+        assertThrows(ManagerException.class, () -> client.putAll(Map.of("d", "4", "e", "")));
+        assertNull(client.load("d"));
+    }
+
+    @Test
+    public void shouldDeleteKeysOfRemovedTasksOnServer() throws IOException, InterruptedException {
+        Task task = manager.addTask(new Task("Task 1", "Description of Task 1",
+                LocalDateTime.of(2022, 12, 30, 19, 0, 0), "PT15M"));
+        Task kept = manager.addTask(new Task("Task 2", "Description of Task 2",
+                LocalDateTime.of(2022, 12, 30, 19, 30, 0), "PT30M"));
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        SubTask subTask = manager.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                LocalDateTime.of(2022, 12, 31, 12, 0, 0), "PT20M", epic.getId()));
+        manager.deleteTask(task.getId());
+        manager.deleteEpic(epic.getId());
+
+        KVTaskClient client = new KVTaskClient();
+        TaskManager loaded = new HttpTaskManager(Managers.getDefaultHistory(), null, client);
+        assertEquals(List.of(kept), loaded.getAllTasks());
+        assertTrue(loaded.getAllEpics().isEmpty());
+        assertEquals(List.of("task-" + kept.getId()), new ArrayList<>(client.loadAll(List.of("task-" + task.getId(),
+                "task-" + kept.getId(), "epic-" + epic.getId(), "subtask-" + subTask.getId())).keySet()));
+
+        client.putAll(Map.of("a", "1", "b", "2"));
+        assertEquals("1", client.load("a"));
+        client.putAll(Map.of("c", "3"), List.of("a"));
+        assertEquals(Map.of("b", "2", "c", "3"), client.loadAll(List.of("a", "b", "c")));
+        assertNull(client.load("a"));
+    }
+
+    @Test
+    public void shouldSendOnlyWhatChanged() throws IOException, InterruptedException {
+        List<String> sent = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        KVTaskClient client = new KVTaskClient() {
+            @Override
+            public void putAll(Map<String, String> values, Collection<String> removed) {
+                sent.addAll(values.keySet());
+                deleted.addAll(removed);
+                super.putAll(values, removed);
+            }
+        };
+        HttpTaskManager saved = new HttpTaskManager(Managers.getDefaultHistory(), null, client);
+        Task task1 = saved.addTask(new Task("Task 1", "Description of Task 1",
+                LocalDateTime.of(2022, 12, 30, 19, 0, 0), "PT15M"));
+        Task task2 = saved.addTask(new Task("Task 2", "Description of Task 2",
+                LocalDateTime.of(2022, 12, 30, 19, 30, 0), "PT30M"));
+        assertEquals(List.of("task-" + task1.getId(), "manifest", "task-" + task2.getId(), "manifest"), sent);
+
+        sent.clear();
+        task1.setStatus(Status.DONE);
+        saved.updateTask(task1);
+        assertEquals(List.of("task-" + task1.getId()), sent);
+
+        sent.clear();
+        saved.getTask(task2.getId());
+        assertEquals(List.of("history"), sent);
+
+        sent.clear();
+        saved.deleteTask(task2.getId());
+        assertEquals(List.of("manifest", "history"), sent);
+        assertEquals(List.of("task-" + task2.getId()), deleted);
+
+        TaskManager loaded = new HttpTaskManager(Managers.getDefaultHistory());
+        assertEquals(List.of(task1), loaded.getAllTasks());
+        assertEquals(Status.DONE, loaded.getAllTasks().get(0).getStatus());
+        assertEquals(List.of(), loaded.getHistory());
+    }
+
+    @Test
+    public void shouldPutAndLoadAsynchronously() throws IOException, InterruptedException {
+        KVTaskClient client = new KVTaskClient(Duration.ofSeconds(5));
+        List<CompletableFuture<Void>> puts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            puts.add(client.putAsync("key-" + i, "value-" + i));
+        }
+        CompletableFuture.allOf(puts.toArray(new CompletableFuture<?>[0])).join();
+        for (int i = 0; i < 20; i++) {
+            assertEquals("value-" + i, client.loadAsync("key-" + i).join());
+        }
+        assertNull(client.loadAsync("key-20").join());
+        client.putAllAsync(Map.of("a", "1", "b", "2")).join();
+        assertEquals(Map.of("a", "1"), client.loadAllAsync(List.of("a", "c")).join());
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> client.putAllAsync(Map.of("d", "")).join());
+        assertEquals(ManagerException.class, e.getCause().getClass());
+    }
+
+    @Test
+    public void shouldRestoreBoardAfterKVServerRestart() throws IOException, InterruptedException {
+        String log = "kv.restart.test.log";
+        try {
+            server.stop();
+            server = new KVServer(new LogKVStorage(log), 4);
+            server.start();
+            TaskManager saved = new HttpTaskManager(Managers.getDefaultHistory());
+            Task task = saved.addTask(new Task("Task 1", "Description of Task 1",
+                    LocalDateTime.of(2022, 12, 30, 19, 0, 0), "PT15M"));
+            Epic epic = saved.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+            saved.getTask(task.getId());
+
+            server.stop();
+            server = new KVServer(new LogKVStorage(log), 4);
+            server.start();
+            TaskManager loaded = new HttpTaskManager(Managers.getDefaultHistory());
+            assertEquals(List.of(task), loaded.getAllTasks());
+            assertEquals(List.of(epic), loaded.getAllEpics());
+            assertEquals(List.of(task), loaded.getHistory());
+        } finally {
+            Files.deleteIfExists(Paths.get(log));
+        }
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedForSameEtag() throws IOException, InterruptedException {
+        new KVTaskClient().put("a", "[1]");
+        HttpClient http = HttpClient.newHttpClient();
+        URI uri = URI.create(KVServer.KV_HOST + KVServer.LOAD_PATH + "/a?API_TOKEN=DEBUG");
+        HttpResponse<String> first = http.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> second = http.send(HttpRequest.newBuilder(uri).GET()
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, second.statusCode());
+        assertEquals("", second.body());
+
+        new KVTaskClient().put("a", "[2]");
+        HttpResponse<String> changed = http.send(HttpRequest.newBuilder(uri).GET()
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals("[2]", changed.body());
+    }
+
+    @Test
+    public void shouldCompressLargeBodies() throws IOException, InterruptedException {
+        String value = "{\"name\":\"Task\",\"description\":\"Description of Task\"}".repeat(200);
+        new KVTaskClient().putAll(Map.of("big", value));
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                URI.create(KVServer.KV_HOST + KVServer.LOAD_PATH + "/big?API_TOKEN=DEBUG"))
+                .GET().header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+        assertTrue(response.body().length < value.length() / 10);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertEquals(value, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        KVTaskClient client = new KVTaskClient();
+        assertEquals(Map.of("big", value), client.loadAll(List.of("big")));
+        assertEquals(Map.of("big", value), client.loadAll(List.of("big")));
+        assertEquals(value, client.load("big"));
+    }
+
+    @Test
+    public void shouldReloadBoardWithSameClient() throws IOException, InterruptedException {
+        String description = "Description of Task 1 ".repeat(60);
+        Task task = manager.addTask(new Task("Task 1", description,
+                LocalDateTime.of(2022, 12, 30, 19, 0, 0), "PT15M"));
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        KVTaskClient client = new KVTaskClient();
+        assertEquals(List.of(task), new HttpTaskManager(Managers.getDefaultHistory(), null, client).getAllTasks());
+        assertEquals(0, server.notModified());
+
+        TaskManager reloaded = new HttpTaskManager(Managers.getDefaultHistory(), null, client);
+        assertEquals(List.of(task), reloaded.getAllTasks());
+        assertEquals(description, reloaded.getAllTasks().get(0).getDescription());
+        assertEquals(1, server.notModified());
+
+        task.setStatus(Status.IN_PROGRESS);
+        manager.updateTask(task);
+        reloaded = new HttpTaskManager(Managers.getDefaultHistory(), null, client);
+        assertEquals(List.of(task), reloaded.getAllTasks());
+        assertEquals(Status.IN_PROGRESS, reloaded.getAllTasks().get(0).getStatus());
+        assertEquals(List.of(epic), reloaded.getAllEpics());
+        assertEquals(1, server.notModified());
+
+        assertTrue(client.load("task-" + task.getId()).contains("IN_PROGRESS"));
+        assertEquals(2, server.notModified());
+    }
+}
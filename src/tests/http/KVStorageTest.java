@@ -0,0 +1,144 @@
+package http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVStorageTest {
+    private static final Path LOG = Paths.get("kv.test.log");
+
+    @AfterEach
+    void deleteLog() throws IOException {
+        Files.deleteIfExists(LOG);
+        Files.deleteIfExists(Paths.get(LOG + ".compact"));
+    }
+
+    @Test
+    @DisplayName(value = "Журнал после повторного открытия отдаёт последние значения")
+    void shouldKeepValuesAfterReopen() {
+        try (LogKVStorage storage = new LogKVStorage(LOG, LogKVStorage.MIN_COMPACT_BYTES)) {
+            storage.put("task-1", "{\"name\":\"Задача\"}");
+            storage.putAll(Map.of("task-2", "2", "manifest", "[1,2]"));
+            storage.put("task-1", "1");
+        }
+        try (LogKVStorage storage = new LogKVStorage(LOG, LogKVStorage.MIN_COMPACT_BYTES)) {
+            assertEquals("1", storage.get("task-1"));
+            assertEquals(Map.of("task-2", "2", "manifest", "[1,2]"),
+                    storage.getAll(List.of("task-2", "task-3", "manifest")));
+            assertNull(storage.get("task-3"));
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Оборванный последний пакет отбрасывается целиком")
+    void shouldDropTornBatch() throws IOException {
+        long complete;
+        try (LogKVStorage storage = new LogKVStorage(LOG, LogKVStorage.MIN_COMPACT_BYTES)) {
+            storage.put("a", "1");
+            complete = storage.size();
+            storage.putAll(Map.of("a", "2", "b", "2"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(LOG.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        try (LogKVStorage storage = new LogKVStorage(LOG, LogKVStorage.MIN_COMPACT_BYTES)) {
+            assertEquals(complete, storage.size());
+            assertEquals("1", storage.get("a"));
+            assertNull(storage.get("b"));
+            storage.put("b", "3");
+        }
+        try (LogKVStorage storage = new LogKVStorage(LOG, LogKVStorage.MIN_COMPACT_BYTES)) {
+            assertEquals(Map.of("a", "1", "b", "3"), storage.getAll(List.of("a", "b")));
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Сжатие не теряет записи, сделанные во время сжатия")
+    void shouldCompactWhileWriting() throws InterruptedException {
+        Map<String, String> expected = new HashMap<>();
+        try (LogKVStorage storage = new LogKVStorage(LOG, 64 * 1024)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                String prefix = "w" + w + "-";
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        storage.put(prefix + i % 50, prefix + i);
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            for (int w = 0; w < 4; w++) {
+                for (int i = 4_950; i < 5_000; i++) {
+                    expected.put("w" + w + "-" + i % 50, "w" + w + "-" + i);
+                }
+            }
+            assertEquals(expected, storage.getAll(expected.keySet()));
+            assertTrue(storage.size() < 20_000 * 20, "журнал не сжимался: " + storage.size());
+        }
+        try (LogKVStorage storage = new LogKVStorage(LOG, 64 * 1024)) {
+            assertEquals(expected, storage.getAll(expected.keySet()));
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Удалённый ключ не возвращается ни после повторного открытия, ни после сжатия")
+    void shouldForgetRemovedKeys() throws IOException {
+        try (LogKVStorage storage = new LogKVStorage(LOG, 64 * 1024)) {
+            storage.putAll(Map.of("task-1", "1", "task-2", "2"));
+            storage.putAll(Map.of("task-3", "3"), List.of("task-1"));
+            storage.remove("task-404");
+        }
+        try (LogKVStorage storage = new LogKVStorage(LOG, 64 * 1024)) {
+            assertEquals(Map.of("task-2", "2", "task-3", "3"),
+                    storage.getAll(List.of("task-1", "task-2", "task-3", "task-404")));
+            storage.remove("task-2");
+            String value = "x".repeat(1000);
+            for (int i = 0; i < 1_000; i++) {
+                storage.put("churn", value + i);
+            }
+        }
+        assertFalse(new String(Files.readAllBytes(LOG)).contains("task-2"), "сжатие оставило удалённый ключ");
+        try (LogKVStorage storage = new LogKVStorage(LOG, 64 * 1024)) {
+            assertEquals(Map.of("task-3", "3"), storage.getAll(List.of("task-1", "task-2", "task-3")));
+            assertNull(storage.get("task-2"));
+        }
+
+        MemoryKVStorage memory = new MemoryKVStorage();
+        memory.putAll(Map.of("task-1", "1", "task-2", "2"));
+        memory.putAll(Map.of("task-3", "3"), List.of("task-1"));
+        assertEquals(Map.of("task-2", "2", "task-3", "3"), memory.getAll(List.of("task-1", "task-2", "task-3")));
+    }
+
+    @Test
+    @DisplayName(value = "Пакет в памяти виден целиком")
+    void shouldSeeMemoryBatchWhole() throws InterruptedException {
+        MemoryKVStorage storage = new MemoryKVStorage();
+        storage.putAll(Map.of("a", "0", "b", "0"));
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 20_000; i++) {
+                storage.putAll(Map.of("a", "" + i, "b", "" + i));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            Map<String, String> pair = storage.getAll(List.of("a", "b"));
+            assertEquals(pair.get("a"), pair.get("b"));
+        }
+        assertEquals("20000", storage.get("b"));
+    }
+}
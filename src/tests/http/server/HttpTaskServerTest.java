@@ -1,17 +1,44 @@
 package http.server;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import http.HttpTaskServer;
 import http.KVServer;
+import manager.Managers;
+import manager.task.Pages;
+import manager.task.TaskManager;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.SubTask;
+import tasks.Task;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static http.Config.PORTS.HTTP;
+import static org.junit.jupiter.api.Assertions.*;
+import static tasks.Status.DONE;
 
 class HttpTaskServerTest {
+    private static final String HOST = "http://localhost:" + HTTP.get();
+    private static final String NEXT_CURSOR = "X-Next-Cursor";
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 10, 0);
 
     private static KVServer kvServer;
     private static HttpTaskServer taskServer;
+    private static TaskManager manager;
+    private static final HttpClient client = HttpClient.newHttpClient();
 
     @BeforeAll
     @DisplayName(value = "Запуск серверов")
@@ -19,7 +46,8 @@ class HttpTaskServerTest {
         try {
             kvServer = new KVServer();
             kvServer.start();
-            taskServer = new HttpTaskServer();
+            manager = Managers.getConcurrentTaskManager(Managers.getConcurrentHistory());
+            taskServer = new HttpTaskServer(manager, 4);
             taskServer.start();
         } catch (IOException e) {
             e.printStackTrace();
@@ -32,4 +60,166 @@ class HttpTaskServerTest {
         kvServer.stop();
         taskServer.stop();
     }
-}
\ No newline at end of file
+
+    @BeforeEach
+    @DisplayName(value = "Очистка доски перед каждым тестом")
+    void clearBoard() {
+        manager.deleteAllTasks();
+        manager.deleteAllEpics();
+    }
+
+    @Test
+    @DisplayName(value = "Задачи, эпики и подзадачи читаются страницами до конца по заголовку " + NEXT_CURSOR)
+    void shouldWalkPagesById() throws IOException, InterruptedException {
+        List<Integer> taskIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taskIds.add(manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    START.plusHours(i), "PT15M")).getId());
+        }
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subTaskIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Epic epic = manager.addEpic(new Epic("Epic " + i, "Description by Epic " + i));
+            epicIds.add(epic.getId());
+            for (int j = 0; j < 2; j++) {
+                subTaskIds.add(manager.addSubTask(new SubTask("SubTask " + j, "Description by SubTask " + j,
+                        START.plusDays(1 + i).plusHours(j), "PT20M", epic.getId())).getId());
+            }
+        }
+
+        HttpResponse<String> first = get("/tasks/task/?limit=2");
+        assertEquals(200, first.statusCode());
+        assertEquals(taskIds.subList(0, 2), ids(first.body()));
+        assertEquals(String.valueOf(taskIds.get(1)), first.headers().firstValue(NEXT_CURSOR).orElseThrow());
+
+        assertEquals(taskIds, walk("/tasks/task/?", 2));
+        assertEquals(epicIds, walk("/tasks/epic/?", 1));
+        assertEquals(subTaskIds, walk("/tasks/subtask/?", 3));
+        assertEquals(taskIds.subList(3, 5), ids(get("/tasks/task/?cursor=" + taskIds.get(2)).body()));
+    }
+
+    @Test
+    @DisplayName(value = "Список приоритета читается страницами по положению последней задачи")
+    void shouldWalkPrioritizedPagesByPosition() throws IOException, InterruptedException {
+        for (int i = 0; i < 7; i++) {
+            manager.addTask(new Task("Task " + i, "Description by Task " + i, START.minusHours(i), "PT15M"));
+        }
+        List<Integer> expected = manager.getPrioritizedTasks().stream()
+                .map(Task::getId)
+                .collect(Collectors.toList());
+
+        HttpResponse<String> first = get("/tasks/?limit=3");
+        assertEquals(200, first.statusCode());
+        assertEquals(expected.subList(0, 3), ids(first.body()));
+        String cursor = first.headers().firstValue(NEXT_CURSOR).orElseThrow();
+        assertEquals(Pages.Position.of(manager.getPrioritizedTasks().get(2)), Pages.Position.parse(cursor));
+
+        assertEquals(expected, walk("/tasks/?", 3));
+        assertEquals(expected, walk("/tasks/?", 7));
+    }
+
+    @Test
+    @DisplayName(value = "Неверные limit и cursor отклоняются с кодом 400")
+    void shouldRejectBadPagingParameters() throws IOException, InterruptedException {
+        manager.addTask(new Task("Task", "Description by Task", START, "PT15M"));
+        for (String path : List.of("/tasks/task/?limit=0", "/tasks/task/?limit=1001", "/tasks/task/?limit=ten",
+                "/tasks/task/?cursor=abc", "/tasks/epic/?limit=0", "/tasks/epic/?cursor=abc",
+                "/tasks/subtask/?limit=1001", "/tasks/subtask/?cursor=abc",
+                "/tasks/?limit=0", "/tasks/?limit=1001", "/tasks/?cursor=abc", "/tasks/?cursor=1.2",
+                "/tasks/?cursor=a.b.c")) {
+            assertEquals(400, get(path).statusCode(), path);
+        }
+        assertEquals(200, get("/tasks/task/?limit=1000").statusCode());
+    }
+
+    @Test
+    @DisplayName(value = "Выборка по статусу и времени отдаётся страницами в порядке приоритета")
+    void shouldFilterPrioritizedByStatusAndTime() throws IOException, InterruptedException {
+        List<Integer> done = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Task task = manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    START.plusHours(i), "PT15M"));
+            if (i % 2 == 0) {
+                task.setStatus(DONE);
+                manager.updateTask(task);
+                done.add(task.getId());
+            }
+        }
+
+        HttpResponse<String> found = get("/tasks/?status=DONE");
+        assertEquals(200, found.statusCode());
+        assertEquals(done, ids(found.body()));
+        assertTrue(found.headers().firstValue(NEXT_CURSOR).isEmpty());
+        assertEquals(done.subList(1, 3),
+                ids(get("/tasks/?status=DONE&from=" + START.plusHours(1) + "&to=" + START.plusHours(5)).body()));
+        assertEquals(done, walk("/tasks/?status=DONE&", 2));
+        assertEquals(done.subList(1, 3), walk("/tasks/?status=DONE&from=" + START.plusHours(1) + "&", 1));
+    }
+
+    @Test
+    @DisplayName(value = "Выборка без limit ограничена страницей по умолчанию")
+    void shouldLimitFilteredQueryWithoutLimit() throws IOException, InterruptedException {
+        for (int i = 0; i < 105; i++) {
+            manager.addTask(new Task("Task " + i, "Description by Task " + i, START.plusHours(i), "PT15M"));
+        }
+        HttpResponse<String> first = get("/tasks/?status=NEW");
+        assertEquals(200, first.statusCode());
+        assertEquals(100, ids(first.body()).size());
+        String cursor = first.headers().firstValue(NEXT_CURSOR).orElseThrow();
+        assertEquals(5, ids(get("/tasks/?status=NEW&cursor=" + cursor).body()).size());
+    }
+
+    @Test
+    @DisplayName(value = "Неверные статус, время и параметры страницы выборки отклоняются с кодом 400")
+    void shouldRejectBadFilter() throws IOException, InterruptedException {
+        for (String path : List.of("/tasks/?status=BOGUS", "/tasks/?status=done", "/tasks/?from=yesterday",
+                "/tasks/?to=2023-13-01T00:00", "/tasks/?status=NEW&limit=0", "/tasks/?status=NEW&cursor=1.2")) {
+            assertEquals(400, get(path).statusCode(), path);
+        }
+        assertEquals(200, get("/tasks/?from=" + START + "&to=" + START.plusDays(1)).statusCode());
+    }
+
+    /**
+     * Чтение списка страницами, пока сервер присылает курсор следующей страницы
+     *
+     * @param path  путь с началом строки запроса ("...?" или "...?параметры&")
+     * @param limit размер страницы
+     * @return id задач всех страниц по порядку
+     */
+    private static List<Integer> walk(String path, int limit) throws IOException, InterruptedException {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            HttpResponse<String> page = get(path + "limit=" + limit + (cursor == null ? "" : "&cursor=" + cursor));
+            assertEquals(200, page.statusCode());
+            List<Integer> pageIds = ids(page.body());
+            assertTrue(pageIds.size() <= limit);
+            ids.addAll(pageIds);
+            cursor = page.headers().firstValue(NEXT_CURSOR).orElse(null);
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(HOST + path))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * id задач из тела ответа; списки задач и эпиков приходят JSON-строкой с массивом внутри
+     */
+    private static List<Integer> ids(String body) {
+        JsonElement json = JsonParser.parseString(body);
+        if (json.isJsonPrimitive()) {
+            json = JsonParser.parseString(json.getAsString());
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (JsonElement task : json.getAsJsonArray()) {
+            ids.add(task.getAsJsonObject().get("id").getAsInt());
+        }
+        return ids;
+    }
+}
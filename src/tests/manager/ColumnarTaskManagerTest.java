@@ -0,0 +1,138 @@
+package manager;
+
+import exception.ManagerException;
+import manager.task.Batch;
+import manager.task.ColumnarTaskManager;
+import manager.task.InMemoryTaskManager;
+import manager.task.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.SubTask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+    protected static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @BeforeEach
+    @DisplayName(value = "Подготовительные работы. " +
+            "Создание менеджера для всех тестов.")
+    void beforeEach() {
+        manager = createManager();
+    }
+
+    protected ColumnarTaskManager createManager() {
+        return new ColumnarTaskManager(Managers.getDefaultHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Задача, пересекающаяся по времени с другой, не добавляется и не обновляется")
+    void shouldThrowWhenTasksOverlap() {
+        Task task1 = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task task2 = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusMinutes(30), "PT30M"));
+        Task crossing = new Task("Task 3", "Description by Task 3", START.plusMinutes(15), "PT30M");
+        assertThrows(ManagerException.class, () -> manager.addTask(crossing));
+        Task moved = new Task("Task 2", "Description by Task 2", START.plusMinutes(10), "PT30M");
+        moved.setId(task2.getId());
+        assertThrows(ManagerException.class, () -> manager.updateTask(moved));
+        assertEquals(List.of(task1, task2), manager.getPrioritizedTasks());
+        assertEquals(List.of(task1, task2), manager.getAllTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Выдаёт те же задачи, тот же список приоритета и те же свободные места, что и InMemoryTaskManager")
+    void shouldMatchInMemoryTaskManager() {
+        InMemoryTaskManager expected = new InMemoryTaskManager(Managers.getDefaultHistory());
+        Random random = new Random(15);
+        List<Integer> ids = new ArrayList<>();
+        Epic epic = manager.addEpic(new Epic("Epic", "Description by Epic"));
+        expected.addEpic(new Epic("Epic", "Description by Epic"));
+        for (int i = 0; i < 3_000; i++) {
+            int operation = random.nextInt(4);
+            LocalDateTime start = START.plusMinutes(30L * random.nextInt(2_000));
+            if (operation == 0 && !ids.isEmpty()) {
+                int id = ids.remove(random.nextInt(ids.size()));
+                manager.deleteTask(id);
+                manager.deleteSubTask(id);
+                expected.deleteTask(id);
+                expected.deleteSubTask(id);
+                continue;
+            }
+            Task task = operation == 1
+                    ? new SubTask("SubTask", "Description", start, "PT20M", epic.getId())
+                    : new Task("Task " + i, "Description", start, "PT20M");
+            Task copy = operation == 1
+                    ? new SubTask("SubTask", "Description", start, "PT20M", epic.getId())
+                    : new Task("Task " + i, "Description", start, "PT20M");
+            boolean added = add(manager, task);
+            assertEquals(added, add(expected, copy));
+            if (added) {
+                ids.add(task.getId());
+            }
+            if (i % 10 == 0) {
+                Duration duration = Duration.ofMinutes(random.nextInt(90));
+                assertEquals(expected.findFreeSlot(duration, start), manager.findFreeSlot(duration, start));
+            }
+        }
+        assertEquals(new HashSet<>(expected.getAllTasks()), new HashSet<>(manager.getAllTasks()));
+        assertEquals(new HashSet<>(expected.getAllSubTasks()), new HashSet<>(manager.getAllSubTasks()));
+        assertEquals(expected.getPrioritizedTasks(), manager.getPrioritizedTasks());
+        assertEquals(expected.getEpic(epic.getId()), manager.getEpic(epic.getId()));
+    }
+
+    @Test
+    @DisplayName(value = "Удаление крайней подзадачи пересчитывает время эпика")
+    void shouldRecountEpicTimeWhenEdgeSubTaskDeleted() {
+        Epic epic = manager.addEpic(new Epic("Epic", "Description by Epic"));
+        SubTask first = manager.addSubTask(new SubTask("SubTask 1", "Description", START, "PT20M", epic.getId()));
+        manager.addSubTask(new SubTask("SubTask 2", "Description", START.plusHours(1), "PT20M", epic.getId()));
+        SubTask last = manager.addSubTask(new SubTask("SubTask 3", "Description", START.plusHours(2), "PT20M", epic.getId()));
+        assertEquals(START, epic.getStartTime());
+        manager.deleteSubTask(first.getId());
+        manager.deleteSubTask(last.getId());
+        assertEquals(START.plusHours(1), epic.getStartTime());
+        assertEquals(START.plusMinutes(80), epic.getStartTime().plus(epic.getDuration()));
+        last.setStatus(Status.DONE);
+        manager.updateSubTask(last);
+        assertEquals(Status.NEW, epic.getStatus());
+    }
+
+    @Test
+    @DisplayName(value = "Пакет, на промежуточном шаге которого задачи пересекаются, отклоняется целиком")
+    void shouldRejectBatchOverlappingMidway() {
+        Task first = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task second = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusHours(1), "PT30M"));
+        Task movedFirst = new Task("Task 1", "Description by Task 1", START.plusHours(1), "PT30M");
+        movedFirst.setId(first.getId());
+        Task movedSecond = new Task("Task 2", "Description by Task 2", START, "PT30M");
+        movedSecond.setId(second.getId());
+
+        assertThrows(ManagerException.class,
+                () -> manager.batch(new Batch().updateTask(movedFirst).updateTask(movedSecond)));
+        assertEquals(List.of(first, second), manager.getPrioritizedTasks());
+    }
+
+    private static boolean add(TaskManager target, Task task) {
+        try {
+            if (task instanceof SubTask) {
+                target.addSubTask((SubTask) task);
+            } else {
+                target.addTask(task);
+            }
+            return true;
+        } catch (ManagerException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package manager;
+
+import manager.history.ConcurrentHistoryManager;
+import manager.history.HistoryManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentHistoryManagerTest extends InMemoryHistoryManagerTest {
+    private static final int THREADS = 8;
+    private static final int VIEWS = 20_000;
+    private static final int TASKS = 100;
+
+    @Override
+    protected HistoryManager createManager() {
+        return new ConcurrentHistoryManager();
+    }
+
+    @Override
+    protected HistoryManager createManager(int capacity) {
+        return new ConcurrentHistoryManager(capacity);
+    }
+
+    @Test
+    @DisplayName(value = "Повторный просмотр переносит задачу в конец истории")
+    void shouldMoveViewedAgainTaskToEnd() {
+        List<Task> tasks = tasks(3);
+        tasks.forEach(manager::add);
+        manager.add(tasks.get(0));
+        assertEquals(List.of(tasks.get(1), tasks.get(2), tasks.get(0)), manager.getHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Одновременные просмотры из " + THREADS + " потоков: каждая задача в истории один раз")
+    void shouldKeepOneEntryPerTaskUnderConcurrentViews() throws Exception {
+        List<Task> tasks = tasks(TASKS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < VIEWS; i++) {
+                    Task task = tasks.get(random.nextInt(TASKS));
+                    if (i % 50 == 0) {
+                        manager.remove(task.getId());
+                    } else {
+                        manager.add(task);
+                    }
+                    if (i % 1000 == 0) {
+                        manager.getHistory();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        tasks.forEach(manager::add);
+        List<Task> history = manager.getHistory();
+        assertEquals(tasks, history);
+        assertEquals(TASKS, new HashSet<>(history).size());
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Task task = new Task("Task " + i, "Description by Task " + i, LocalDateTime.now(), "PT0S");
+            task.setId(i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,197 @@
+package manager;
+
+import exception.ManagerException;
+import manager.task.ConcurrentTaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.SubTask;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5_000;
+    private static final int EPICS = 4;
+
+    @BeforeEach
+    @DisplayName(value = "Подготовительные работы. " +
+            "Создание менеджера для всех тестов.")
+    void beforeEach() {
+        manager = new ConcurrentTaskManager(Managers.getConcurrentHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Одновременные изменения из " + THREADS + " потоков сохраняют инварианты менеджера")
+    void shouldKeepInvariantsUnderConcurrentLoad() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(manager.addEpic(new Epic("Epic " + i, "Description by Epic " + i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                runRandomOperations(new Random(seed), epics);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Task> all = new ArrayList<>(manager.getAllTasks());
+        all.addAll(manager.getAllSubTasks());
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : all) {
+            assertTrue(ids.add(task.getId()), "повтор id " + task.getId());
+        }
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(all.size(), prioritized.size());
+        assertTrue(prioritized.containsAll(all));
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i - 1).getEndTime().isAfter(prioritized.get(i).getStartTime()),
+                    "пересечение " + prioritized.get(i - 1) + " и " + prioritized.get(i));
+        }
+        for (Epic epic : manager.getAllEpics()) {
+            List<SubTask> subTasks = manager.getAllSubTasks().stream()
+                    .filter(subTask -> subTask.getEpicId() == epic.getId())
+                    .collect(Collectors.toList());
+            assertEquals(subTasks.stream().map(Task::getId).collect(Collectors.toSet()),
+                    new HashSet<>(epic.getSubTaskIds()));
+            assertEquals(subTasks.size(), epic.getSubTaskIds().size());
+            assertEquals(expectedStatus(subTasks), epic.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Задача, удалённая во время просмотра, не остаётся в истории")
+    void shouldNotKeepDeletedTasksInHistory() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            manager.deleteAllTasks();
+            manager.deleteAllEpics();
+            List<Integer> ids = new ArrayList<>();
+            int epicId = 0;
+            for (int i = 0; i < 200; i++) {
+                LocalDateTime startTime = START.plusHours(i);
+                if (i % 20 == 0) {
+                    epicId = manager.addEpic(new Epic("Epic " + i, "Description by Epic " + i)).getId();
+                    ids.add(epicId);
+                } else if (i % 2 == 0) {
+                    ids.add(manager.addSubTask(new SubTask("SubTask " + i, "Description by SubTask " + i,
+                            startTime, "PT20M", epicId)).getId());
+                } else {
+                    ids.add(manager.addTask(new Task("Task " + i, "Description by Task " + i, startTime,
+                            "PT20M")).getId());
+                }
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                boolean deleter = thread == 0;
+                Random random = new Random(round * THREADS + thread);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (deleter) {
+                        List<Integer> order = new ArrayList<>(ids);
+                        Collections.shuffle(order, random);
+                        for (int id : order) {
+                            manager.deleteSubTask(id);
+                            manager.deleteTask(id);
+                            manager.deleteEpic(id);
+                        }
+                        return null;
+                    }
+                    while (!manager.getAllTasks().isEmpty() || !manager.getAllEpics().isEmpty()) {
+                        int id = ids.get(random.nextInt(ids.size()));
+                        manager.getTask(id);
+                        manager.getSubTask(id);
+                        manager.getEpic(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+            assertEquals(List.of(), manager.getHistory(), "раунд " + round);
+        }
+    }
+
+    private void runRandomOperations(Random random, List<Epic> epics) {
+        Status[] statuses = Status.values();
+        for (int i = 0; i < OPERATIONS; i++) {
+            Epic epic = epics.get(random.nextInt(epics.size()));
+            LocalDateTime startTime = START.plusMinutes(30L * random.nextInt(OPERATIONS));
+            try {
+                switch (random.nextInt(6)) {
+                    case 0:
+                        manager.addTask(new Task("Task", "Description by Task", startTime, "PT20M"));
+                        break;
+                    case 1:
+                    case 2:
+                        manager.addSubTask(new SubTask("SubTask", "Description by SubTask", startTime, "PT20M",
+                                epic.getId()));
+                        break;
+                    case 3:
+                        List<Integer> subTaskIds = manager.getSubTasksByEpic(epic.getId()).stream()
+                                .map(Task::getId)
+                                .collect(Collectors.toList());
+                        if (!subTaskIds.isEmpty()) {
+                            SubTask subTask = new SubTask("SubTask", "Description by SubTask", startTime,
+                                    "PT20M", epic.getId());
+                            subTask.setId(subTaskIds.get(random.nextInt(subTaskIds.size())));
+                            subTask.setStatus(statuses[random.nextInt(statuses.length)]);
+                            manager.updateSubTask(subTask);
+                        }
+                        break;
+                    case 4:
+                        List<SubTask> subTasks = manager.getAllSubTasks();
+                        if (!subTasks.isEmpty()) {
+                            manager.deleteSubTask(subTasks.get(random.nextInt(subTasks.size())).getId());
+                        }
+                        break;
+                    default:
+                        List<Task> tasks = manager.getAllTasks();
+                        if (!tasks.isEmpty()) {
+                            manager.deleteTask(tasks.get(random.nextInt(tasks.size())).getId());
+                        }
+                }
+            } catch (ManagerException e) {
+                // пересечение по времени - ожидаемый отказ
+            }
+        }
+    }
+
+    private static Status expectedStatus(List<SubTask> subTasks) {
+        if (subTasks.stream().allMatch(subTask -> subTask.getStatus() == Status.NEW)) return Status.NEW;
+        if (subTasks.stream().allMatch(subTask -> subTask.getStatus() == Status.DONE)) return Status.DONE;
+        return Status.IN_PROGRESS;
+    }
+}
@@ -1,7 +1,11 @@
 package manager;
 
+import exception.ManagerException;
+import manager.task.Batch;
 import manager.task.FileBackedTasksManager;
+import manager.task.GroupCommit;
 import manager.task.InMemoryTaskManager;
+import manager.task.Journal;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,15 +15,23 @@ import tasks.SubTask;
 import tasks.Task;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
+import static tasks.Status.DONE;
 
 class FileBackedTasksManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     private final String TASKS_CSV_TEST = "tasks.test.csv";
     private final File file = new File(TASKS_CSV_TEST);
+    private final File journalFile = Journal.nextTo(file);
+    private final File binaryFile = new File("tasks.test.bin");
     private final LocalDateTime TIME_NOW = LocalDateTime.now();
 
     @BeforeEach
@@ -33,6 +45,10 @@ class FileBackedTasksManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     @DisplayName(value = "Удаление файла после всех тестов.")
     void afterEach() {
         file.delete();
+        journalFile.delete();
+        Journal.rotated(journalFile).delete();
+        new File(TASKS_CSV_TEST + ".tmp").delete();
+        binaryFile.delete();
     }
 
     @Test
@@ -43,7 +59,8 @@ class FileBackedTasksManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         manager.addTask(task);
         Epic epic = new Epic("Epic 1", "Description by Epic 1");
         manager.addEpic(epic);
-        SubTask subTask = new SubTask("SubTask 1", "Description by SubTask 1", TIME_NOW, "PT20M", epic.getId());
+        SubTask subTask = new SubTask("SubTask 1", "Description by SubTask 1",
+                TIME_NOW.plusMinutes(15), "PT20M", epic.getId());
         manager.addSubTask(subTask);
         FileBackedTasksManager backedTasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
         backedTasksManager.loadFromFile();
@@ -70,4 +87,370 @@ class FileBackedTasksManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         backedTasksManager.loadFromFile();
         assertEquals(Collections.EMPTY_LIST, manager.getHistory());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName(value = "Удаление всех задач сохраняет файл один раз, а не на каждую задачу")
+    void shouldSaveOnceWhenDeleteAll() {
+        int[] saves = {0};
+        FileBackedTasksManager backedTasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file) {
+            @Override
+            public void save() {
+                saves[0]++;
+                super.save();
+            }
+        };
+        Epic epic = new Epic("Epic 1", "Description by Epic 1");
+        backedTasksManager.addEpic(epic);
+        for (int i = 0; i < 10; i++) {
+            backedTasksManager.addSubTask(new SubTask("SubTask " + i, "Description by SubTask " + i,
+                    TIME_NOW.plusHours(i), "PT20M", epic.getId()));
+        }
+        saves[0] = 0;
+        backedTasksManager.deleteAllEpics();
+        assertEquals(1, saves[0]);
+
+        FileBackedTasksManager loadedTasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        loadedTasksManager.loadFromFile();
+        assertEquals(Collections.EMPTY_LIST, loadedTasksManager.getAllEpics());
+        assertEquals(Collections.EMPTY_LIST, loadedTasksManager.getAllSubTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Пакет изменений сохраняется в файл один раз")
+    void shouldSaveOncePerBatch() {
+        int[] saves = {0};
+        FileBackedTasksManager backedTasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file) {
+            @Override
+            public void save() {
+                saves[0]++;
+                super.save();
+            }
+        };
+        Epic epic = new Epic("Epic 1", "Description by Epic 1");
+        Batch batch = new Batch().addEpic(epic);
+        for (int i = 0; i < 10; i++) {
+            batch.addSubTask(new SubTask("SubTask " + i, "Description by SubTask " + i,
+                    TIME_NOW.plusHours(i), "PT20M", 0), epic);
+        }
+        backedTasksManager.batch(batch);
+        assertEquals(1, saves[0]);
+        assertThrows(ManagerException.class, () -> backedTasksManager.batch(new Batch()
+                .addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"))));
+        assertEquals(1, saves[0]);
+
+        FileBackedTasksManager loadedTasksManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        loadedTasksManager.loadFromFile();
+        assertEquals(backedTasksManager.getAllSubTasks(), loadedTasksManager.getAllSubTasks());
+        assertEquals(10, loadedTasksManager.getAllEpics().get(0).getSubTaskIds().size());
+    }
+
+    @Test
+    @DisplayName(value = "В режиме журнала операции дописываются в журнал без снимка " +
+            "и восстанавливаются при загрузке")
+    void shouldReplayJournal() {
+        FileBackedTasksManager journaled = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        Task task = journaled.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+        Epic epic = journaled.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        SubTask subTask1 = journaled.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                TIME_NOW.plusHours(1), "PT20M", epic.getId()));
+        SubTask subTask2 = journaled.addSubTask(new SubTask("SubTask 2", "Description by SubTask 2",
+                TIME_NOW.plusHours(2), "PT20M", epic.getId()));
+        subTask1.setStatus(DONE);
+        journaled.updateSubTask(subTask1);
+        journaled.getSubTask(subTask1.getId());
+        journaled.getTask(task.getId());
+        journaled.deleteSubTask(subTask2.getId());
+        assertFalse(file.exists());
+
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        loaded.loadFromFile();
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals(List.of(subTask1), loaded.getAllSubTasks());
+        assertEquals(List.of(subTask1, task), loaded.getHistory());
+        assertEquals(List.of(task, subTask1), loaded.getPrioritizedTasks());
+        Epic loadedEpic = loaded.getAllEpics().get(0);
+        assertEquals(List.of(subTask1.getId()), loadedEpic.getSubTaskIds());
+        assertEquals(DONE, loadedEpic.getStatus());
+        assertEquals(subTask1.getStartTime(), loadedEpic.getStartTime());
+    }
+
+    @Test
+    @DisplayName(value = "Журнал сворачивается в снимок по достижении порога и очищается")
+    void shouldCompactJournal() {
+        Journal journal = new Journal(journalFile, Journal.SyncPolicy.EVERY_RECORD, 3);
+        FileBackedTasksManager journaled = new FileBackedTasksManager(Managers.getDefaultHistory(), file, journal);
+        Task task1 = journaled.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+        Task task2 = journaled.addTask(new Task("Task 2", "Description by Task 2", TIME_NOW.plusHours(1), "PT15M"));
+        Task task3 = journaled.addTask(new Task("Task 3", "Description by Task 3", TIME_NOW.plusHours(2), "PT15M"));
+        assertTrue(file.exists());
+        assertEquals(0, journalFile.length());
+        journaled.deleteTask(task2.getId());
+
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        loaded.loadFromFile();
+        assertEquals(List.of(task1, task3), loaded.getPrioritizedTasks());
+        Task task4 = loaded.addTask(new Task("Task 4", "Description by Task 4", TIME_NOW.plusHours(3), "PT15M"));
+        assertEquals(task3.getId() + 1, task4.getId());
+    }
+
+    @Test
+    @DisplayName(value = "Сбой посреди компактизации: записи, вошедшие в снимок, не проигрываются повторно")
+    void shouldRecoverFromCrashDuringCompaction() throws IOException {
+        for (boolean snapshotMoved : new boolean[]{true, false}) {
+            afterEach();
+            FileBackedTasksManager journaled = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    new Journal(journalFile));
+            Task taskA = journaled.addTask(new Task("Task A", "Description by Task A", TIME_NOW, "PT15M"));
+            Task moved = new Task("Task A", "Description by Task A", TIME_NOW.plusHours(1), "PT15M");
+            moved.setId(taskA.getId());
+            journaled.updateTask(moved);
+            Task taskB = journaled.addTask(new Task("Task B", "Description by Task B", TIME_NOW, "PT15M"));
+            Epic epic = journaled.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+            journaled.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                    TIME_NOW.plusHours(2), "PT20M", epic.getId()));
+            journaled.deleteEpic(epic.getId());
+            byte[] records = Files.readAllBytes(journalFile.toPath());
+
+            journaled.compact();
+            File rotated = Journal.rotated(journalFile);
+            Files.write(rotated.toPath(), records);
+            if (!snapshotMoved) {
+                Files.move(file.toPath(), new File(TASKS_CSV_TEST + ".tmp").toPath());
+            }
+
+            FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    new Journal(journalFile));
+            loaded.loadFromFile();
+            assertEquals(List.of(taskB, moved), loaded.getPrioritizedTasks(), "снимок заменён: " + snapshotMoved);
+            assertTrue(loaded.getAllEpics().isEmpty());
+            assertTrue(loaded.getAllSubTasks().isEmpty());
+            assertTrue(file.exists());
+            assertFalse(rotated.exists());
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Недописанная последняя запись журнала отбрасывается при загрузке")
+    void shouldIgnoreTornJournalTail() throws IOException {
+        FileBackedTasksManager journaled = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        Task task = journaled.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+        try (FileWriter writer = new FileWriter(journalFile, true)) {
+            writer.write("PUT,2,TASK,'Task 2',NE");
+        }
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        loaded.loadFromFile();
+        assertEquals(List.of(task), loaded.getAllTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Групповое сохранение: одно сохранение на группу операций и по явному flush")
+    void shouldSaveOncePerGroupOfOperations() {
+        int[] saves = {0};
+        try (GroupCommit groupCommit = new GroupCommit(60_000, 5)) {
+            FileBackedTasksManager grouped = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    null, groupCommit) {
+                @Override
+                public void save() {
+                    saves[0]++;
+                    super.save();
+                }
+            };
+            for (int i = 0; i < 4; i++) {
+                grouped.addTask(new Task("Task " + i, "Description by Task " + i, TIME_NOW.plusHours(i), "PT15M"));
+            }
+            assertEquals(0, saves[0]);
+            grouped.getTask(1);
+            assertEquals(1, saves[0]);
+            grouped.flush();
+            assertEquals(1, saves[0]);
+            grouped.deleteTask(1);
+            grouped.flush();
+            assertEquals(2, saves[0]);
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Групповое сохранение: изменения сохраняются в фоне по истечении задержки")
+    void shouldSaveInBackgroundAfterDelay() throws InterruptedException {
+        AtomicInteger saves = new AtomicInteger();
+        try (GroupCommit groupCommit = new GroupCommit(20, 1_000)) {
+            FileBackedTasksManager grouped = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    null, groupCommit) {
+                @Override
+                public void save() {
+                    super.save();
+                    saves.incrementAndGet();
+                }
+            };
+            Task task = grouped.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+            for (int i = 0; i < 100 && saves.get() == 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, saves.get());
+            FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+            loaded.loadFromFile();
+            assertEquals(List.of(task), loaded.getAllTasks());
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Групповое сохранение в режиме журнала дописывает группу записей после flush")
+    void shouldAppendJournalGroupOnFlush() {
+        try (GroupCommit groupCommit = new GroupCommit(60_000, 1_000)) {
+            FileBackedTasksManager grouped = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    new Journal(journalFile), groupCommit);
+            Task task = grouped.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+            Epic epic = grouped.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+            assertFalse(journalFile.exists());
+            grouped.flush();
+
+            FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                    new Journal(journalFile));
+            loaded.loadFromFile();
+            assertEquals(List.of(task), loaded.getAllTasks());
+            assertEquals(List.of(epic), loaded.getAllEpics());
+        }
+    }
+
+    @Test
+    @DisplayName(value = "Сбой во время сохранения оставляет прежний снимок целым")
+    void shouldKeepPreviousSnapshotWhenSaveFails() {
+        boolean[] failing = {false};
+        FileBackedTasksManager failingManager = new FileBackedTasksManager(Managers.getDefaultHistory(), file) {
+            @Override
+            public List<Epic> getAllEpics() {
+                if (failing[0]) {
+                    throw new IllegalStateException("Сбой во время сохранения");
+                }
+                return super.getAllEpics();
+            }
+        };
+        Task task = failingManager.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+        failing[0] = true;
+        assertThrows(IllegalStateException.class, () -> failingManager.addTask(
+                new Task("Task 2", "Description by Task 2", TIME_NOW.plusHours(1), "PT15M")));
+
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        loaded.loadFromFile();
+        assertEquals(List.of(task), loaded.getAllTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Бинарный снимок и снимок, сконвертированный из CSV, загружаются так же, как CSV")
+    void shouldSaveLoadAndConvertBinarySnapshot() {
+        FileBackedTasksManager binary = new FileBackedTasksManager(Managers.getDefaultHistory(), binaryFile,
+                FileBackedTasksManager.Format.BINARY, null, null);
+        Task task = binary.addTask(new Task("Task, с запятой", "Описание 1", TIME_NOW, "PT15M"));
+        Epic epic = binary.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        SubTask subTask = binary.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                TIME_NOW.plusHours(1), "PT20M", epic.getId()));
+        subTask.setStatus(DONE);
+        binary.updateSubTask(subTask);
+        binary.getSubTask(subTask.getId());
+        binary.getTask(task.getId());
+
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), binaryFile);
+        loaded.loadFromFile();
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals(List.of(subTask), loaded.getAllSubTasks());
+        assertEquals(List.of(subTask, task), loaded.getHistory());
+        assertEquals(DONE, loaded.getAllEpics().get(0).getStatus());
+        assertEquals(List.of(subTask.getId()), loaded.getAllEpics().get(0).getSubTaskIds());
+
+        Task csvTask = manager.addTask(new Task("Task 1", "Description by Task 1", TIME_NOW, "PT15M"));
+        manager.getTask(csvTask.getId());
+        FileBackedTasksManager.convert(file, binaryFile, FileBackedTasksManager.Format.BINARY);
+        FileBackedTasksManager converted = new FileBackedTasksManager(Managers.getDefaultHistory(), binaryFile);
+        converted.loadFromFile();
+        assertEquals(List.of(csvTask), converted.getAllTasks());
+        assertEquals(List.of(csvTask), converted.getHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Названия и описания с запятыми, кавычками и переводами строк " +
+            "сохраняются в CSV и журнал без искажений")
+    void shouldSaveAndLoadTitlesWithSeparatorsAndQuotes() {
+        Task task = manager.addTask(new Task("It's a task, really", "Line 1\nLine 2, 'quoted'", TIME_NOW,
+                "PT1H30M"));
+        Epic epic = manager.addEpic(new Epic("''", ","));
+        SubTask subTask = manager.addSubTask(new SubTask("SubTask 1'", "'", TIME_NOW.plusHours(2), "PT0S",
+                epic.getId()));
+        manager.getTask(task.getId());
+        manager.getEpic(epic.getId());
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        loaded.loadFromFile();
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals(task.getTitle(), loaded.getAllTasks().get(0).getTitle());
+        assertEquals(task.getDescription(), loaded.getAllTasks().get(0).getDescription());
+        assertEquals(task.getDuration(), loaded.getAllTasks().get(0).getDuration());
+        assertEquals(List.of(epic), loaded.getAllEpics());
+        assertEquals(List.of(subTask), loaded.getAllSubTasks());
+        assertEquals(List.of(task, epic), loaded.getHistory());
+
+        FileBackedTasksManager journaled = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        Task other = journaled.addTask(new Task("Task,\n2", "'x'", TIME_NOW.plusDays(1), "PT15M"));
+        FileBackedTasksManager replayed = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                new Journal(journalFile));
+        replayed.loadFromFile();
+        assertEquals(List.of(other), replayed.getAllTasks());
+        assertEquals(other.getTitle(), replayed.getAllTasks().get(0).getTitle());
+    }
+
+    @Test
+    @DisplayName(value = "Файл, сохранённый до экранирования кавычек, загружается")
+    void shouldLoadFileWithUnescapedQuotes() throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("id,type,name,status,description,startTime,duration,epicId\n"
+                    + "1,TASK,'It's mine',DONE,'Description by Task 1','2023-01-01T10:00','PT15M',\n"
+                    + "History\n"
+                    + "1");
+        }
+        FileBackedTasksManager loaded = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        loaded.loadFromFile();
+        Task task = loaded.getTask(1);
+        assertEquals("It's mine", task.getTitle());
+        assertEquals(DONE, task.getStatus());
+        assertEquals(LocalDateTime.of(2023, 1, 1, 10, 0), task.getStartTime());
+    }
+
+    @Test
+    @DisplayName(value = "Параллельная загрузка большого снимка совпадает с последовательной")
+    void shouldLoadInParallelLikeSequentially() {
+        FileBackedTasksManager source = new FileBackedTasksManager(Managers.getDefaultHistory(), file,
+                null, new GroupCommit(60_000, Integer.MAX_VALUE));
+        for (int i = 0; i < 500; i++) {
+            Epic epic = source.addEpic(new Epic("Epic " + i, "Description,\nby 'Epic' " + i));
+            for (int j = 0; j < 3; j++) {
+                source.addSubTask(new SubTask("SubTask " + j, "Description by SubTask\n" + j,
+                        TIME_NOW.plusHours(4L * i + j), "PT30M", epic.getId()));
+            }
+            Task task = source.addTask(new Task("Task, " + i, "Description by Task " + i,
+                    TIME_NOW.plusHours(4L * i + 3), "PT15M"));
+            if (i % 10 == 0) {
+                source.getTask(task.getId());
+            }
+        }
+        source.flush();
+
+        FileBackedTasksManager sequential = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        sequential.loadFromFile();
+        FileBackedTasksManager parallel = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        parallel.loadFromFile(new ForkJoinPool(4));
+        assertEquals(sequential.getAllTasks(), parallel.getAllTasks());
+        assertEquals(sequential.getAllEpics(), parallel.getAllEpics());
+        assertEquals(sequential.getAllSubTasks(), parallel.getAllSubTasks());
+        assertEquals(sequential.getPrioritizedTasks(), parallel.getPrioritizedTasks());
+        assertEquals(source.getHistory(), parallel.getHistory());
+        for (Epic epic : parallel.getAllEpics()) {
+            assertEquals(3, epic.getSubTaskIds().size());
+        }
+        Task next = parallel.addTask(new Task("Task", "Description", TIME_NOW.minusHours(1), "PT15M"));
+        assertEquals(2500 + 1, next.getId());
+    }
+}
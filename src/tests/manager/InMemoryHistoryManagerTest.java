@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import tasks.Task;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,7 +16,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class InMemoryHistoryManagerTest {
     private static final LocalDateTime TIME_NOW = LocalDateTime.now();
-    private HistoryManager manager;
+    protected HistoryManager manager;
     private int id = 0;
 
     public int generateId() {
@@ -26,9 +27,17 @@ class InMemoryHistoryManagerTest {
         return new Task("Task 1", "Description by Task 1", TIME_NOW, "PT0S");
     }
 
+    protected HistoryManager createManager() {
+        return new InMemoryHistoryManager();
+    }
+
+    protected HistoryManager createManager(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
     @BeforeEach
     void beforeEach() {
-        manager = new InMemoryHistoryManager();
+        manager = createManager();
     }
 
     @Test
@@ -108,4 +117,42 @@ class InMemoryHistoryManagerTest {
         manager.remove(0);
         assertEquals(List.of(task), manager.getHistory());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName(value = "При переполнении вытесняется самый давний просмотр, повторный просмотр продлевает жизнь")
+    void shouldEvictOldestWhenFull() {
+        manager = createManager(3);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = newTask();
+            task.setId(generateId());
+            tasks.add(task);
+        }
+        manager.add(tasks.get(0));
+        manager.add(tasks.get(1));
+        manager.add(tasks.get(2));
+        manager.add(tasks.get(0));
+        manager.add(tasks.get(3));
+        assertEquals(List.of(tasks.get(2), tasks.get(0), tasks.get(3)), manager.getHistory());
+        manager.add(tasks.get(4));
+        assertEquals(List.of(tasks.get(0), tasks.get(3), tasks.get(4)), manager.getHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Страница истории и последние просмотры")
+    void shouldReturnPageAndRecentViews() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = newTask();
+            task.setId(generateId());
+            tasks.add(task);
+            manager.add(task);
+        }
+        assertEquals(tasks.subList(1, 3), manager.getHistory(1, 2));
+        assertEquals(tasks.subList(4, 5), manager.getHistory(4, 10));
+        assertEquals(Collections.EMPTY_LIST, manager.getHistory(10, 2));
+        assertEquals(tasks.subList(3, 5), manager.getRecent(2));
+        assertEquals(tasks, manager.getRecent(10));
+        assertEquals(Collections.EMPTY_LIST, manager.getRecent(0));
+    }
+}
@@ -1,10 +1,32 @@
 package manager;
 
+import exception.ManagerException;
+import manager.task.Batch;
 import manager.task.InMemoryTaskManager;
+import manager.task.Pages;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.SubTask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final int BOARD_SIZE = 50_000;
+    private static final int EPIC_SIZE = 2_000;
 
     @BeforeEach
     @DisplayName(value = "Подготовительные работы. " +
@@ -12,4 +34,194 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     void beforeEach() {
         manager = new InMemoryTaskManager(Managers.getDefaultHistory());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName(value = "Задача, пересекающаяся по времени с другой, не добавляется")
+    void shouldThrowWhenTasksOverlap() {
+        Task task = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task crossing = new Task("Task 2", "Description by Task 2", START.plusMinutes(15), "PT30M");
+        assertThrows(ManagerException.class, () -> manager.addTask(crossing));
+        Task inner = new Task("Task 3", "Description by Task 3", START.plusMinutes(5), "PT5M");
+        assertThrows(ManagerException.class, () -> manager.addTask(inner));
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+        assertEquals(List.of(task), manager.getAllTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Задача, начинающаяся в момент окончания другой, добавляется")
+    void shouldAddTaskStartingAtEndOfAnother() {
+        Task task1 = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task task2 = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusMinutes(30), "PT30M"));
+        Task task0 = manager.addTask(new Task("Task 0", "Description by Task 0", START.minusMinutes(10), "PT10M"));
+        assertEquals(List.of(task0, task1, task2), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Добавление " + BOARD_SIZE + " задач сохраняет порядок списка приоритета")
+    void shouldAddManyTasks() {
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    START.plusMinutes(30L * i), "PT20M"));
+        }
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(BOARD_SIZE, prioritized.size());
+        assertEquals(START, prioritized.get(0).getStartTime());
+        assertEquals(START.plusMinutes(30L * (BOARD_SIZE - 1)), prioritized.get(BOARD_SIZE - 1).getStartTime());
+    }
+
+    @Test
+    @DisplayName(value = "Обновление задачи на занятое время не меняет список приоритета")
+    void shouldKeepPreviousTaskWhenUpdateOverlaps() {
+        Task task1 = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task task2 = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusHours(1), "PT30M"));
+        Task moved = new Task("Task 2", "Description by Task 2", START.plusMinutes(10), "PT30M");
+        moved.setId(task2.getId());
+        assertThrows(ManagerException.class, () -> manager.updateTask(moved));
+        assertEquals(List.of(task1, task2), manager.getPrioritizedTasks());
+        assertEquals(task2, manager.getTask(task2.getId()));
+    }
+
+    @Test
+    @DisplayName(value = "Задача, перенесённая на другое время, переставляется в списке приоритета")
+    void shouldRekeyUpdatedTask() {
+        Task task1 = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task task2 = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusHours(1), "PT30M"));
+        Task moved = new Task("Task 1", "Description by Task 1", START.plusHours(2), "PT30M");
+        moved.setId(task1.getId());
+        manager.updateTask(moved);
+        assertEquals(List.of(task2, moved), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    @DisplayName(value = "Поток списка приоритета не обрывается, если последнюю задачу страницы удалили")
+    void shouldStreamPastDeletedPageBoundary() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < Pages.STREAM_PAGE + 10; i++) {
+            tasks.add(manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    START.plusMinutes(30L * i), "PT20M")));
+        }
+        List<Task> streamed = new ArrayList<>();
+        manager.streamPrioritizedTasks().forEach(task -> {
+            streamed.add(task);
+            if (streamed.size() == Pages.STREAM_PAGE) {
+                manager.deleteTask(task.getId());
+            }
+        });
+        assertEquals(tasks, streamed);
+    }
+
+    @Test
+    @DisplayName(value = "Удаление эпика с " + EPIC_SIZE + " подзадачами очищает список приоритета")
+    void shouldDeleteLargeEpic() {
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        for (int i = 0; i < EPIC_SIZE; i++) {
+            manager.addSubTask(new SubTask("SubTask " + i, "Description by SubTask " + i,
+                    START.plusMinutes(30L * i), "PT20M", epic.getId()));
+        }
+        Task task = manager.addTask(new Task("Task 1", "Description by Task 1", START.minusHours(1), "PT30M"));
+        manager.deleteEpic(epic.getId());
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertTrue(manager.getAllEpics().isEmpty());
+    }
+
+    @Test
+    @DisplayName(value = "Добавление " + BOARD_SIZE + " подзадач в один эпик пересчитывает время эпика")
+    void shouldAddManySubTasksToOneEpic() {
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            manager.addSubTask(new SubTask("SubTask " + i, "Description by SubTask " + i,
+                    START.plusMinutes(30L * i), "PT20M", epic.getId()));
+        }
+        assertEquals(BOARD_SIZE, manager.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(START, epic.getStartTime());
+        assertEquals(START.plusMinutes(30L * (BOARD_SIZE - 1) + 20), epic.getEndTime());
+    }
+
+    @Test
+    @DisplayName(value = "Расчётные поля эпика совпадают с полным пересчётом по подзадачам " +
+            "после случайных изменений подзадач")
+    void shouldMaintainEpicAggregatesLikeFullRecompute() {
+        Random random = new Random(42);
+        Status[] statuses = Status.values();
+        Epic epic = manager.addEpic(new Epic("Epic 1", "Description by Epic 1"));
+        List<Integer> ids = new ArrayList<>();
+        int nextSlot = 0;
+        for (int step = 0; step < 2_000; step++) {
+            int operation = ids.isEmpty() ? 0 : random.nextInt(4);
+            if (operation == 0) {
+                SubTask subTask = manager.addSubTask(new SubTask("SubTask", "Description by SubTask",
+                        START.plusHours(nextSlot++), "PT" + random.nextInt(60) + "M", epic.getId()));
+                subTask.setStatus(statuses[random.nextInt(statuses.length)]);
+                manager.updateSubTask(subTask);
+                ids.add(subTask.getId());
+            } else if (operation == 1) {
+                int id = ids.get(random.nextInt(ids.size()));
+                SubTask moved = new SubTask("SubTask", "Description by SubTask",
+                        START.plusHours(nextSlot++), "PT" + random.nextInt(60) + "M", epic.getId());
+                moved.setId(id);
+                moved.setStatus(statuses[random.nextInt(statuses.length)]);
+                manager.updateSubTask(moved);
+            } else if (operation == 2) {
+                int id = ids.get(random.nextInt(ids.size()));
+                SubTask subTask = manager.getSubTask(id);
+                subTask.setStatus(statuses[random.nextInt(statuses.length)]);
+                manager.updateSubTask(subTask);
+            } else {
+                int id = ids.remove(random.nextInt(ids.size()));
+                manager.deleteSubTask(id);
+            }
+            List<SubTask> subTasks = manager.getAllSubTasks().stream()
+                    .filter(subTask -> subTask.getEpicId() == epic.getId())
+                    .collect(Collectors.toList());
+            assertEquals(fullRecomputeStatus(subTasks), epic.getStatus(), "step " + step);
+            assertEquals(fullRecomputeTime(subTasks), List.of(epic.getStartTime(), epic.getEndTime()),
+                    "step " + step);
+        }
+    }
+
+    /**
+     * Прежний расчёт статуса эпика полным обходом подзадач
+     */
+    @Test
+    @DisplayName(value = "В пакете задачи меняются временем без ложного пересечения")
+    void shouldSwapTasksInBatch() {
+        Task first = manager.addTask(new Task("Task 1", "Description by Task 1", START, "PT30M"));
+        Task second = manager.addTask(new Task("Task 2", "Description by Task 2", START.plusHours(1), "PT30M"));
+        Task movedFirst = new Task("Task 1", "Description by Task 1", START.plusHours(1), "PT30M");
+        movedFirst.setId(first.getId());
+        Task movedSecond = new Task("Task 2", "Description by Task 2", START, "PT30M");
+        movedSecond.setId(second.getId());
+
+        manager.batch(new Batch().updateTask(movedFirst).updateTask(movedSecond));
+        assertEquals(List.of(movedSecond, movedFirst), manager.getPrioritizedTasks());
+        assertEquals(START.plusMinutes(30), manager.findFreeSlot(Duration.ofMinutes(30), START));
+    }
+
+    private static Status fullRecomputeStatus(List<SubTask> subTasks) {
+        int counterNew = 0;
+        int counterDone = 0;
+        for (SubTask subTask : subTasks) {
+            if (subTask.getStatus() == Status.NEW) counterNew++;
+            if (subTask.getStatus() == Status.DONE) counterDone++;
+        }
+        if (subTasks.size() == counterNew) return Status.NEW;
+        if (subTasks.size() == counterDone) return Status.DONE;
+        return Status.IN_PROGRESS;
+    }
+
+    /**
+     * Прежний расчёт времени эпика сортировкой подзадач
+     */
+    private static List<LocalDateTime> fullRecomputeTime(List<SubTask> subTasks) {
+        if (subTasks.isEmpty()) {
+            LocalDateTime nullTime = LocalDateTime.ofEpochSecond(0L, 0, ZoneOffset.UTC);
+            return List.of(nullTime, nullTime);
+        }
+        List<SubTask> sorted = subTasks.stream()
+                .sorted(Comparator.comparing(Task::getStartTime))
+                .collect(Collectors.toList());
+        SubTask last = sorted.get(sorted.size() - 1);
+        return List.of(sorted.get(0).getStartTime(), last.getEndTime());
+    }
+}
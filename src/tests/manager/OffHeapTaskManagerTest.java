@@ -0,0 +1,59 @@
+package manager;
+
+import exception.ManagerException;
+import manager.task.ColumnarTaskManager;
+import manager.task.OffHeapTaskManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.SubTask;
+import tasks.Task;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTaskManagerTest extends ColumnarTaskManagerTest {
+    private static final int SLAB_SIZE = 4096;
+
+    /**
+     * Маленькие плиты: тесты проходят через несколько плит и уплотнение
+     */
+    @Override
+    protected ColumnarTaskManager createManager() {
+        return new OffHeapTaskManager(Managers.getDefaultHistory(), SLAB_SIZE);
+    }
+
+    @Test
+    @DisplayName(value = "После многократных обновлений записи уплотняются, данные сохраняются")
+    void shouldCompactAfterUpdates() {
+        OffHeapTaskManager offHeap = (OffHeapTaskManager) manager;
+        Epic epic = manager.addEpic(new Epic("Epic", "Description by Epic"));
+        Task task = manager.addTask(new Task("Задача", "Описание", START, "PT20M"));
+        SubTask subTask = manager.addSubTask(new SubTask("Подзадача", "", START.plusHours(1), "PT20M",
+                epic.getId()));
+        for (int i = 0; i < 2_000; i++) {
+            Task updated = new Task("Задача " + i, "Описание " + i, START, "PT20M");
+            updated.setId(task.getId());
+            updated.setStatus(Status.IN_PROGRESS);
+            manager.updateTask(updated);
+        }
+        assertTrue(offHeap.getOffHeapBytes() <= 2L * SLAB_SIZE);
+        Task expected = new Task("Задача 1999", "Описание 1999", START, "PT20M");
+        expected.setId(task.getId());
+        expected.setStatus(Status.IN_PROGRESS);
+        assertEquals(expected, manager.getTask(task.getId()));
+        assertEquals(List.of(expected, subTask), manager.getPrioritizedTasks());
+        assertEquals("", manager.getSubTask(subTask.getId()).getDescription());
+    }
+
+    @Test
+    @DisplayName(value = "Задача больше плиты не добавляется")
+    void shouldRejectTaskLargerThanSlab() {
+        Task task = new Task("x".repeat(SLAB_SIZE), "", START, "PT20M");
+        assertThrows(ManagerException.class, () -> manager.addTask(task));
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+}
@@ -1,6 +1,8 @@
 package manager;
 
 import exception.ManagerException;
+import manager.task.Batch;
+import manager.task.Pages;
 import manager.task.TaskManager;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,9 +10,13 @@ import tasks.Epic;
 import tasks.SubTask;
 import tasks.Task;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static tasks.Status.*;
@@ -130,6 +136,23 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(IN_PROGRESS, manager.getEpic(epic.getId()).getStatus());
     }
 
+    @Test
+    @DisplayName(value = "Новый объект эпика получает статус по подзадачам, а не из запроса")
+    public void shouldRecountStatusOfReplacedEpic() {
+        Epic epic = manager.addEpic(newEpic());
+        manager.addSubTask(newSubTask(epic));
+        Epic replacement = new Epic(epic.getTitle(), "Новое описание");
+        replacement.setId(epic.getId());
+        replacement.getSubTaskIds().addAll(epic.getSubTaskIds());
+        replacement.setStatus(DONE);
+        manager.updateEpic(replacement);
+        assertEquals(NEW, manager.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(epic.getId()), manager.getEpicsByStatus(NEW).stream()
+                .map(Epic::getId)
+                .collect(Collectors.toList()));
+        assertTrue(manager.getEpicsByStatus(DONE).isEmpty());
+    }
+
     @Test
     @DisplayName(value = "Обновление статуса подзадачи на IN_PROGRESS" +
             " повлечёт обновление статуса эпика до такого же статуса")
@@ -238,6 +261,39 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(manager.getAllSubTasks().isEmpty());
     }
 
+    @Test
+    @DisplayName(value = "Удаление всех эпиков удаляет их подзадачи из списка приоритета и истории")
+    public void shouldDeleteAllEpicsWithSubTasksFromPrioritizedAndHistory() {
+        Task task = newTask();
+        manager.addTask(task);
+        Epic epic = newEpic();
+        manager.addEpic(epic);
+        SubTask subTask = new SubTask("SubTask 1", "Description by SubTask 1",
+                TIME_NOW.plusHours(1), "PT20M", epic.getId());
+        manager.addSubTask(subTask);
+        manager.getEpic(epic.getId());
+        manager.getSubTask(subTask.getId());
+        manager.getTask(task.getId());
+        manager.deleteAllEpics();
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+        assertEquals(List.of(task), manager.getHistory());
+    }
+
+    @Test
+    @DisplayName(value = "Удаление всех подзадач сбрасывает статус эпика")
+    public void shouldResetEpicStatusWhenDeleteAllSubTasks() {
+        Epic epic = newEpic();
+        manager.addEpic(epic);
+        SubTask subTask = newSubTask(epic);
+        manager.addSubTask(subTask);
+        subTask.setStatus(DONE);
+        manager.updateSubTask(subTask);
+        manager.deleteAllSubTasks();
+        assertEquals(NEW, manager.getEpic(epic.getId()).getStatus());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
     @Test
     @DisplayName(value = "Удаление единственной задачи опустошает соответствующий hashmap")
     public void shouldDeleteTask() {
@@ -372,4 +428,186 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(tasksHistory.contains(subTask));
         assertTrue(tasksHistory.contains(epic));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName(value = "Страницы по курсору и потоки выдают все задачи по порядку без повторов")
+    public void shouldPageByCursor() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    TIME_NOW.plusHours(5 - i), "PT20M")));
+        }
+        Epic epic = manager.addEpic(newEpic());
+        SubTask subTask = manager.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                TIME_NOW.plusHours(10), "PT20M", epic.getId()));
+
+        assertEquals(tasks.subList(0, 2), manager.getTasks(0, 2));
+        assertEquals(tasks.subList(2, 4), manager.getTasks(tasks.get(1).getId(), 2));
+        manager.deleteTask(tasks.get(4).getId());
+        assertEquals(List.of(tasks.get(3)), manager.getTasks(tasks.get(2).getId(), 2));
+        assertEquals(List.of(epic), manager.getEpics(0, 10));
+        assertEquals(List.of(subTask), manager.getSubTasks(0, 10));
+        assertEquals(tasks.subList(0, 4), manager.streamTasks().collect(Collectors.toList()));
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        List<Task> firstPage = manager.getPrioritizedTasks(null, 3);
+        assertEquals(prioritized.subList(0, 3), firstPage);
+        assertEquals(prioritized.subList(3, 5), manager.getPrioritizedTasks(Pages.Position.of(firstPage.get(2)), 3));
+        assertEquals(prioritized, manager.streamPrioritizedTasks().collect(Collectors.toList()));
+        Pages.Position position = Pages.Position.of(firstPage.get(2));
+        assertEquals(position, Pages.Position.parse(position.toString()));
+        assertThrows(IllegalArgumentException.class, () -> Pages.Position.parse("1.2"));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks(0, 0));
+    }
+
+    @Test
+    @DisplayName(value = "Страница списка приоритета продолжается после удалённой или перенесённой задачи-курсора")
+    public void shouldPagePastDeletedOrMovedCursorTask() {
+        LocalDateTime start = TIME_NOW.truncatedTo(ChronoUnit.MINUTES);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(manager.addTask(new Task("Task " + i, "Description by Task " + i,
+                    start.plusHours(i), "PT20M")));
+        }
+        List<Task> firstPage = manager.getPrioritizedTasks(null, 2);
+        assertEquals(tasks.subList(0, 2), firstPage);
+        manager.deleteTask(tasks.get(1).getId());
+        List<Task> secondPage = manager.getPrioritizedTasks(Pages.Position.of(firstPage.get(1)), 2);
+        assertEquals(tasks.subList(2, 4), secondPage);
+        Pages.Position cursor = Pages.Position.of(secondPage.get(1));
+
+        Task moved = new Task("Task 3", "Description by Task 3", start.plusHours(10), "PT20M");
+        moved.setId(tasks.get(3).getId());
+        manager.updateTask(moved);
+        List<Task> thirdPage = manager.getPrioritizedTasks(cursor, 2);
+        assertEquals(tasks.subList(4, 6), thirdPage);
+        assertEquals(List.of(moved), manager.getPrioritizedTasks(Pages.Position.of(thirdPage.get(1)), 2));
+
+        Task earlier = manager.addTask(new Task("Task 6", "Description by Task 6", start.minusHours(1), "PT20M"));
+        assertEquals(List.of(tasks.get(5), moved), manager.getPrioritizedTasks(Pages.Position.of(tasks.get(4)), 3));
+        assertEquals(earlier, manager.getPrioritizedTasks(null, 1).get(0));
+    }
+
+    @Test
+    @DisplayName(value = "Выборки по статусу и времени начала следуют за обновлением и удалением")
+    public void shouldSelectByStatusAndStartTime() {
+        LocalDateTime start = TIME_NOW.truncatedTo(ChronoUnit.MINUTES);
+        Task first = manager.addTask(new Task("Task 1", "Description by Task 1", start, "PT20M"));
+        Task second = manager.addTask(new Task("Task 2", "Description by Task 2",
+                start.plusHours(1), "PT20M"));
+        Epic epic = manager.addEpic(newEpic());
+        SubTask subTask = manager.addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                start.plusHours(2), "PT20M", epic.getId()));
+
+        assertEquals(List.of(first, second), manager.getTasksByStatus(NEW));
+        second.setStatus(DONE);
+        manager.updateTask(second);
+        assertEquals(List.of(first), manager.getTasksByStatus(NEW));
+        assertEquals(List.of(second), manager.getTasksByStatus(DONE));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(NEW));
+
+        subTask.setStatus(IN_PROGRESS);
+        manager.updateSubTask(subTask);
+        assertEquals(List.of(subTask), manager.getSubTasksByStatus(IN_PROGRESS));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(IN_PROGRESS));
+        assertTrue(manager.getEpicsByStatus(NEW).isEmpty());
+
+        assertEquals(List.of(first, second, subTask), manager.getPrioritizedTasks(null, null, null));
+        assertEquals(List.of(second, subTask), manager.getPrioritizedTasks(null, start.plusHours(1), null));
+        assertEquals(List.of(first, second), manager.getPrioritizedTasks(null, null, start.plusHours(2)));
+        assertEquals(List.of(second), manager.getPrioritizedTasks(DONE, start, start.plusHours(3)));
+        assertEquals(List.of(subTask), manager.getPrioritizedTasks(IN_PROGRESS, null, null));
+
+        manager.deleteTask(first.getId());
+        manager.deleteSubTask(subTask.getId());
+        assertTrue(manager.getTasksByStatus(NEW).isEmpty());
+        assertTrue(manager.getSubTasksByStatus(IN_PROGRESS).isEmpty());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(NEW));
+        assertEquals(List.of(second), manager.getPrioritizedTasks(DONE, null, null));
+    }
+
+    @Test
+    @DisplayName(value = "Находит первое свободное место в списке приоритета и ставит туда задачу")
+    public void shouldFindFreeSlot() {
+        LocalDateTime start = TIME_NOW.truncatedTo(ChronoUnit.MINUTES);
+        manager.addTask(new Task("Task 1", "Description by Task 1", start, "PT20M"));
+        Task middle = manager.addTask(new Task("Task 2", "Description by Task 2",
+                start.plusMinutes(30), "PT30M"));
+        manager.addTask(new Task("Task 3", "Description by Task 3", start.plusMinutes(60), "PT10M"));
+
+        assertEquals(start.minusMinutes(40), manager.findFreeSlot(Duration.ofMinutes(30), start.minusMinutes(40)));
+        assertEquals(start.plusMinutes(20), manager.findFreeSlot(Duration.ofMinutes(10), start));
+        assertEquals(start.plusMinutes(70), manager.findFreeSlot(Duration.ofMinutes(20), start));
+        assertEquals(start.plusMinutes(20), manager.findFreeSlot(Duration.ZERO, start.plusMinutes(5)));
+
+        Task placed = manager.addTaskToFreeSlot(new Task("Task 4", "Description by Task 4",
+                start, "PT15M"), start);
+        assertEquals(start.plusMinutes(70), placed.getStartTime());
+        assertEquals(placed, manager.getPrioritizedTasks().get(3));
+
+        manager.deleteTask(middle.getId());
+        assertEquals(start.plusMinutes(20), manager.findFreeSlot(Duration.ofMinutes(20), start));
+        Epic epic = manager.addEpic(newEpic());
+        SubTask subTask = manager.addSubTaskToFreeSlot(new SubTask("SubTask 1", "Description by SubTask 1",
+                start, "PT40M", epic.getId()), start);
+        assertEquals(start.plusMinutes(20), subTask.getStartTime());
+        assertEquals(start.plusMinutes(85), manager.findFreeSlot(Duration.ofMinutes(1), start));
+    }
+
+    @Test
+    @DisplayName(value = "Пакет применяется целиком: эпик с подзадачами, обновление и удаление")
+    public void shouldApplyBatch() {
+        LocalDateTime start = TIME_NOW.truncatedTo(ChronoUnit.MINUTES);
+        Task first = manager.addTask(new Task("Task 1", "Description by Task 1", start, "PT30M"));
+        Task removed = manager.addTask(new Task("Task 2", "Description by Task 2", start.plusHours(2), "PT30M"));
+        Task moved = new Task("Task 1", "Description by Task 1", start.plusHours(1), "PT30M");
+        moved.setId(first.getId());
+        Epic epic = newEpic();
+        SubTask done = new SubTask("SubTask 1", "Description by SubTask 1", start.plusHours(2), "PT20M", 0);
+        done.setStatus(DONE);
+        SubTask fresh = new SubTask("SubTask 2", "Description by SubTask 2", start.plusHours(3), "PT20M", 0);
+
+        manager.batch(new Batch()
+                .updateTask(moved)
+                .deleteTask(removed.getId())
+                .addEpic(epic)
+                .addSubTask(done, epic)
+                .addSubTask(fresh, epic));
+
+        assertEquals(List.of(moved, done, fresh), manager.getPrioritizedTasks());
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(epic.getId(), fresh.getEpicId());
+        assertEquals(IN_PROGRESS, epic.getStatus());
+        assertEquals(start.plusHours(2), epic.getStartTime());
+        assertEquals(start.plusHours(3).plusMinutes(20), epic.getEndTime());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(IN_PROGRESS));
+    }
+
+    @Test
+    @DisplayName(value = "Пакет с ошибкой не применяется совсем")
+    public void shouldRejectBatchAtomically() {
+        LocalDateTime start = TIME_NOW.truncatedTo(ChronoUnit.MINUTES);
+        Task task = manager.addTask(new Task("Task 1", "Description by Task 1", start, "PT30M"));
+        Epic epic = manager.addEpic(newEpic());
+        Task crossing = new Task("Task 3", "Description by Task 3", start.plusHours(1).plusMinutes(10), "PT30M");
+
+        Batch overlapping = new Batch()
+                .deleteTask(task.getId())
+                .addTask(new Task("Task 2", "Description by Task 2", start.plusHours(1), "PT30M"))
+                .addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                        start.plusHours(2), "PT20M", epic.getId()))
+                .addTask(crossing);
+        assertThrows(ManagerException.class, () -> manager.batch(overlapping));
+        Batch orphan = new Batch()
+                .addTask(new Task("Task 2", "Description by Task 2", start.plusHours(1), "PT30M"))
+                .deleteEpic(epic.getId())
+                .addSubTask(new SubTask("SubTask 1", "Description by SubTask 1",
+                        start.plusHours(2), "PT20M", epic.getId()));
+        assertThrows(ManagerException.class, () -> manager.batch(orphan));
+
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertTrue(manager.getAllSubTasks().isEmpty());
+    }
+}
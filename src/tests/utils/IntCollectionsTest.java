@@ -0,0 +1,127 @@
+package utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntCollectionsTest {
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    @DisplayName(value = "IntMap после случайных вставок и удалений совпадает с HashMap")
+    void shouldBehaveLikeHashMap() {
+        Random random = new Random(7);
+        IntMap<String> actual = new IntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(5_000) * (random.nextBoolean() ? 1 : -65_536);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), actual.put(key, value));
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        for (int key : expected.keySet()) {
+            assertTrue(actual.containsKey(key));
+            assertEquals(expected.get(key), actual.get(key));
+        }
+        actual.clear();
+        assertTrue(actual.isEmpty());
+        assertNull(actual.get(expected.keySet().iterator().next()));
+    }
+
+    @Test
+    @DisplayName(value = "IntMap обходит последовательные ключи по возрастанию")
+    void shouldIterateSequentialKeysInOrder() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = 1; key <= 10; key++) {
+            map.put(key, "v" + key);
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    @DisplayName(value = "IntLinkedSet после случайных вставок и удалений совпадает с LinkedHashSet")
+    void shouldBehaveLikeLinkedHashSet() {
+        Random random = new Random(11);
+        IntLinkedSet actual = new IntLinkedSet();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int value = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(value), actual.removeInt(value));
+            } else {
+                assertEquals(expected.add(value), actual.addInt(value));
+            }
+            assertEquals(expected.size(), actual.size());
+            if (i % 1_000 == 0) {
+                assertEquals(new ArrayList<>(expected), actual);
+            }
+        }
+        assertEquals(new ArrayList<>(expected), actual);
+        assertEquals(actual, new IntLinkedSet(new ArrayList<>(expected)));
+    }
+
+    @Test
+    @DisplayName(value = "Чтение IntLinkedSet с удалёнными элементами не меняет его и безопасно из нескольких потоков")
+    void shouldReadLinkedSetWithoutChangingIt() throws InterruptedException {
+        IntLinkedSet set = new IntLinkedSet();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            set.addInt(i);
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        for (int i = 0; i < 1_000; i += 3) {
+            set.removeInt(i);
+        }
+        assertEquals(expected.get(100), set.get(100));
+        assertEquals(100, set.indexOf(expected.get(100)));
+        assertEquals(-1, set.indexOf(3));
+        List<Integer> iterated = new ArrayList<>();
+        for (int value : set) {
+            iterated.add(value);
+            if (iterated.size() == 10) {
+                set.toIntArray();
+                set.get(500);
+            }
+        }
+        assertEquals(expected, iterated);
+
+        int[] array = expected.stream().mapToInt(Integer::intValue).toArray();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 500; i++) {
+                        assertArrayEquals(array, set.toIntArray());
+                        assertEquals(expected, new ArrayList<>(set));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(List.of(), failures);
+        assertEquals(expected, set);
+    }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+import exception.ManagerException;
+import tasks.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Бинарный формат снимка задач (альтернатива CSV).
+ * <pre>
+ * заголовок : int MAGIC, short VERSION
+ * задачи    : int количество, затем записи
+ *             byte тип, int id, byte статус, long начало (секунды эпохи UTC), long длительность (минуты),
+ *             строка название, строка описание, [int epicId - только SUBTASK]
+ * история   : int количество, int id...
+ * строка    : int длина в байтах, байты UTF-8
+ * </pre>
+ * Эпики записываются раньше подзадач, их время и статус при загрузке рассчитываются заново.
+ */
+public class BinarySnapshot {
+    public static final int MAGIC = 0x4B4E4246; // "KNBF"
+    public static final short VERSION = 1;
+    private static final TypeTask[] TYPES = TypeTask.values();
+    private static final Status[] STATUSES = Status.values();
+
+    /**
+     * Проверка, что буфер начинается с заголовка бинарного снимка. Позиция буфера не меняется.
+     *
+     * @param buffer содержимое файла
+     * @return true - бинарный снимок
+     */
+    public static boolean isBinary(ByteBuffer buffer) {
+        return buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Запись снимка
+     *
+     * @param out     поток записи
+     * @param tasks   задачи всех типов: эпики - раньше своих подзадач
+     * @param count   количество задач
+     * @param history идентификаторы задач в истории просмотров
+     */
+    public static void write(DataOutputStream out, Iterable<? extends Task> tasks, int count,
+                             Collection<Integer> history) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(count);
+        for (Task task : tasks) {
+            writeTask(out, task);
+        }
+        out.writeInt(history.size());
+        for (int id : history) {
+            out.writeInt(id);
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        TypeTask type = task.getType();
+        out.writeByte(type.ordinal());
+        out.writeInt(task.getId());
+        out.writeByte(task.getStatus().ordinal());
+        out.writeLong(task.getStartTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeLong(task.getDuration().toMinutes());
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+        if (type == TypeTask.SUBTASK) {
+            out.writeInt(((SubTask) task).getEpicId());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Чтение снимка прямо из буфера (например, отображённого в память файла)
+     *
+     * @param buffer  содержимое файла
+     * @param tasks   получатель задач в порядке записи
+     * @param history получатель идентификаторов истории в порядке просмотра
+     */
+    public static void read(ByteBuffer buffer, Consumer<Task> tasks, IntConsumer history) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new ManagerException("Файл не является бинарным снимком задач");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new ManagerException("Неподдерживаемая версия бинарного снимка: " + version);
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                tasks.accept(readTask(buffer));
+            }
+            int historySize = buffer.getInt();
+            for (int i = 0; i < historySize; i++) {
+                history.accept(buffer.getInt());
+            }
+        } catch (BufferUnderflowException e) {
+            throw new ManagerException("Бинарный снимок обрезан", e);
+        }
+    }
+
+    private static Task readTask(ByteBuffer buffer) {
+        TypeTask type = TYPES[buffer.get()];
+        int id = buffer.getInt();
+        Status status = STATUSES[buffer.get()];
+        LocalDateTime startTime = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC);
+        Duration duration = Duration.ofMinutes(buffer.getLong());
+        String title = readString(buffer);
+        String description = readString(buffer);
+        Task task;
+        if (type == TypeTask.EPIC) {
+            task = new Epic(title, description);
+        } else if (type == TypeTask.SUBTASK) {
+            task = new SubTask(title, description, startTime, duration, buffer.getInt());
+            task.setStatus(status);
+        } else {
+            task = new Task(title, description, startTime, duration);
+            task.setStatus(status);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
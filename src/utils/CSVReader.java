@@ -0,0 +1,536 @@
+package utils;
+
+import exception.ManagerException;
+import tasks.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Потоковый разбор CSV-файла задач.
+ * <p>Файл читается через буфер фиксированного размера: в буфере держится только текущая запись,
+ * поэтому объём мусора при загрузке не зависит от размера файла. Числа, перечисления, дата и длительность
+ * разбираются прямо из символов буфера, новые строки создаются только для названия и описания.</p>
+ * <p>Формат поля: значение без кавычек или значение в одинарных кавычках. Внутри кавычек допустимы
+ * запятые и переводы строк, кавычка записывается двумя кавычками ({@code 'It''s'}).
+ * Одиночная кавычка, за которой не следует конец поля, считается частью значения -
+ * так читаются файлы, сохранённые до появления экранирования.</p>
+ */
+public class CSVReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char QUOTE = '\'';
+    private static final char SEPARATOR = ',';
+    private static final TypeTask[] TYPES = TypeTask.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final Reader in;
+    private final StringBuilder unescaped = new StringBuilder();
+    private char[] buffer;
+    private int limit;
+    private boolean eof;
+    private int recordStart;
+    private int recordEnd;
+    private int next;
+    private int position;
+
+    /**
+     * @param in источник; закрывает вызывающая сторона
+     */
+    public CSVReader(Reader in) {
+        this.in = in;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * @param text текст одной или нескольких записей
+     */
+    public CSVReader(CharSequence text) {
+        this(CharBuffer.wrap(text.toString().toCharArray()));
+    }
+
+    /**
+     * @param text текст одной или нескольких записей; буфер с массивом разбирается без копирования
+     */
+    public CSVReader(CharBuffer text) {
+        this.in = null;
+        if (text.hasArray()) {
+            this.buffer = text.array();
+            this.next = text.arrayOffset() + text.position();
+            this.limit = text.arrayOffset() + text.limit();
+        } else {
+            this.buffer = new char[text.remaining()];
+            text.duplicate().get(buffer);
+            this.limit = buffer.length;
+        }
+        this.eof = true;
+    }
+
+    /**
+     * Разбиение файла на части по границам записей для параллельного разбора.
+     * Байты разделителей ({@code ' , \n}) в UTF-8 не встречаются внутри многобайтовых символов,
+     * поэтому границы ищутся прямо в байтах, с учётом кавычек. Разбиение заканчивается на первой
+     * пустой записи или записи, равной {@code stopRecord}.
+     *
+     * @param bytes      содержимое файла
+     * @param chunkBytes желаемый размер части, байт
+     * @param stopRecord запись, на которой разбиение останавливается
+     * @return смещения начала частей по возрастанию; последнее - смещение записи-остановки или конец данных
+     */
+    public static int[] split(ByteBuffer bytes, int chunkBytes, String stopRecord) {
+        int start = bytes.position();
+        int limit = bytes.limit();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(start);
+        int record = start;
+        int chunkStart = start;
+        while (record < limit) {
+            if (isStopRecord(bytes, record, limit, stopRecord)) {
+                break;
+            }
+            int end = findRecordEnd(bytes, record, limit);
+            record = end < limit ? end + 1 : end;
+            if (record - chunkStart >= chunkBytes && record < limit) {
+                bounds.add(record);
+                chunkStart = record;
+            }
+        }
+        if (bounds.get(bounds.size() - 1) != record) {
+            bounds.add(record);
+        }
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static boolean isStopRecord(ByteBuffer bytes, int from, int limit, String stopRecord) {
+        int i = from;
+        while (i < limit && bytes.get(i) != '\n' && Character.isWhitespace(bytes.get(i))) {
+            i++;
+        }
+        if (i >= limit || bytes.get(i) == '\n') {
+            return true;
+        }
+        if (from + stopRecord.length() > limit) {
+            return false;
+        }
+        for (int j = 0; j < stopRecord.length(); j++) {
+            if (bytes.get(from + j) != stopRecord.charAt(j)) {
+                return false;
+            }
+        }
+        int after = from + stopRecord.length();
+        return after == limit || bytes.get(after) == '\n' || bytes.get(after) == '\r';
+    }
+
+    /**
+     * То же, что {@link #findRecordEnd(int)}, по байтам UTF-8 полностью прочитанного файла
+     */
+    private static int findRecordEnd(ByteBuffer bytes, int from, int limit) {
+        int i = from;
+        boolean fieldStart = true;
+        boolean quoted = false;
+        while (i < limit) {
+            byte c = bytes.get(i);
+            if (quoted) {
+                if (c == QUOTE) {
+                    if (i + 1 >= limit) {
+                        return limit;
+                    }
+                    byte after = bytes.get(i + 1);
+                    if (after == QUOTE) {
+                        i++;
+                    } else if (after == SEPARATOR || after == '\n' || after == '\r') {
+                        quoted = false;
+                    }
+                }
+            } else if (c == '\n') {
+                return i;
+            } else if (fieldStart && c == QUOTE) {
+                quoted = true;
+            }
+            fieldStart = !quoted && c == SEPARATOR;
+            i++;
+        }
+        return limit;
+    }
+
+    /**
+     * Переход к следующей записи
+     *
+     * @return false - записи закончились
+     */
+    public boolean next() {
+        int end;
+        while ((end = findRecordEnd(next)) < 0) {
+            fill();
+        }
+        if (next >= limit) {
+            return false;
+        }
+        recordStart = next;
+        position = next;
+        next = end < limit ? end + 1 : end;
+        recordEnd = end > recordStart && buffer[end - 1] == '\r' ? end - 1 : end;
+        return true;
+    }
+
+    /**
+     * @return true - текущая запись пустая или состоит из пробелов
+     */
+    public boolean isBlank() {
+        for (int i = recordStart; i < recordEnd; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value строка для сравнения
+     * @return true - текущая запись целиком совпадает со строкой
+     */
+    public boolean contentEquals(String value) {
+        return equalsRange(recordStart, recordEnd, value);
+    }
+
+    /**
+     * @return текст текущей записи без перевода строки
+     */
+    public String record() {
+        return new String(buffer, recordStart, recordEnd - recordStart);
+    }
+
+    /**
+     * @return true - в текущей записи есть непрочитанные поля
+     */
+    public boolean hasField() {
+        return position < recordEnd;
+    }
+
+    /**
+     * @return true - текущее поле пустое (или поля закончились)
+     */
+    public boolean isFieldEmpty() {
+        return position >= recordEnd || buffer[position] == SEPARATOR;
+    }
+
+    public int readInt() {
+        boolean quoted = openField();
+        int start = position;
+        boolean negative = position < recordEnd && buffer[position] == '-';
+        if (negative) {
+            position++;
+        }
+        long value = 0;
+        while (position < recordEnd && isDigit(buffer[position])) {
+            value = value * 10 + (buffer[position++] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw error("Число вне диапазона int", start);
+            }
+        }
+        if (position == start || (negative && position == start + 1)) {
+            throw error("Ожидалось число", start);
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("Число вне диапазона int", start);
+        }
+        closeField(quoted);
+        return (int) value;
+    }
+
+    public <E extends Enum<E>> E readEnum(E[] values) {
+        boolean quoted = openField();
+        int start = position;
+        while (position < recordEnd && buffer[position] != SEPARATOR && buffer[position] != QUOTE) {
+            position++;
+        }
+        for (E value : values) {
+            if (equalsRange(start, position, value.name())) {
+                closeField(quoted);
+                return value;
+            }
+        }
+        throw error("Неизвестное значение " + values[0].getDeclaringClass().getSimpleName(), start);
+    }
+
+    public String readString() {
+        if (position >= recordEnd || buffer[position] != QUOTE) {
+            int start = position;
+            while (position < recordEnd && buffer[position] != SEPARATOR) {
+                position++;
+            }
+            String value = new String(buffer, start, position - start);
+            skipSeparator();
+            return value;
+        }
+        int start = ++position;
+        unescaped.setLength(0);
+        boolean escaped = false;
+        while (true) {
+            if (position >= recordEnd) {
+                throw error("Не закрыта кавычка", start - 1);
+            }
+            if (buffer[position] == QUOTE) {
+                if (position + 1 < recordEnd && buffer[position + 1] == QUOTE) {
+                    if (!escaped) {
+                        unescaped.append(buffer, start, position - start);
+                        escaped = true;
+                    }
+                    unescaped.append(QUOTE);
+                    position += 2;
+                    continue;
+                }
+                if (position + 1 >= recordEnd || buffer[position + 1] == SEPARATOR) {
+                    break;
+                }
+            }
+            if (escaped) {
+                unescaped.append(buffer[position]);
+            }
+            position++;
+        }
+        String value = escaped ? unescaped.toString() : new String(buffer, start, position - start);
+        position++;
+        skipSeparator();
+        return value;
+    }
+
+    /**
+     * Разбор даты в формате {@link LocalDateTime#toString()}: {@code yyyy-MM-ddTHH:mm[:ss[.n]]}
+     */
+    public LocalDateTime readDateTime() {
+        boolean quoted = openField();
+        int start = position;
+        int end = fieldEnd();
+        LocalDateTime value;
+        if (end - start >= 16 && buffer[start + 4] == '-' && buffer[start + 7] == '-'
+                && buffer[start + 10] == 'T' && buffer[start + 13] == ':'
+                && (end - start == 16 || (end - start == 19 && buffer[start + 16] == ':'))) {
+            value = LocalDateTime.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2),
+                    digits(start + 11, 2), digits(start + 14, 2),
+                    end - start == 19 ? digits(start + 17, 2) : 0);
+        } else {
+            value = LocalDateTime.parse(new String(buffer, start, end - start));
+        }
+        position = end;
+        closeField(quoted);
+        return value;
+    }
+
+    /**
+     * Разбор длительности в формате {@link Duration#toString()}: {@code PT[nH][nM][nS]}
+     */
+    public Duration readDuration() {
+        boolean quoted = openField();
+        int start = position;
+        int end = fieldEnd();
+        long seconds = 0;
+        int i = start + 2;
+        boolean parsed = end - start > 2 && buffer[start] == 'P' && buffer[start + 1] == 'T';
+        while (parsed && i < end) {
+            int numberStart = i;
+            long number = 0;
+            while (i < end && isDigit(buffer[i]) && i - numberStart < 12) {
+                number = number * 10 + (buffer[i++] - '0');
+            }
+            if (i == numberStart || i >= end) {
+                parsed = false;
+            } else if (buffer[i] == 'H') {
+                seconds += number * 3600;
+            } else if (buffer[i] == 'M') {
+                seconds += number * 60;
+            } else if (buffer[i] == 'S') {
+                seconds += number;
+            } else {
+                parsed = false;
+            }
+            i++;
+        }
+        Duration value = parsed ? Duration.ofSeconds(seconds) : Duration.parse(new String(buffer, start, end - start));
+        position = end;
+        closeField(quoted);
+        return value;
+    }
+
+    /**
+     * Разбор задачи из текущей записи формата
+     * {@code id,type,'name',status,'description','startTime','duration',epicId}
+     *
+     * @return (Задача / Эпик)/ПодЗадача.
+     */
+    public Task readTask() {
+        int id = readInt();
+        TypeTask type = readEnum(TYPES);
+        String title = readString();
+        Status status = readEnum(STATUSES);
+        String description = readString();
+        LocalDateTime startTime = readDateTime();
+        Duration duration = readDuration();
+
+        Task task;
+        if (type == TypeTask.EPIC) {
+            task = new Epic(title, description);
+        } else if (type == TypeTask.SUBTASK && !isFieldEmpty()) {
+            task = new SubTask(title, description, startTime, duration, readInt());
+            task.setStatus(status);
+        } else {
+            task = new Task(title, description, startTime, duration);
+            task.setStatus(status);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    /**
+     * Разбор списка идентификаторов через запятую (строка истории)
+     *
+     * @param ids получатель идентификаторов в порядке записи
+     */
+    public void readIds(IntConsumer ids) {
+        while (hasField()) {
+            if (isFieldEmpty()) {
+                skipSeparator();
+            } else {
+                ids.accept(readInt());
+            }
+        }
+    }
+
+    /**
+     * Поиск конца записи, начинающейся с from: перевод строки вне кавычек или конец данных
+     *
+     * @return индекс перевода строки или конца данных; -1 - запись не помещается в прочитанные данные
+     */
+    private int findRecordEnd(int from) {
+        int i = from;
+        boolean fieldStart = true;
+        boolean quoted = false;
+        while (i < limit) {
+            char c = buffer[i];
+            if (quoted) {
+                if (c == QUOTE) {
+                    if (i + 1 >= limit) {
+                        return eof ? limit : -1;
+                    }
+                    char after = buffer[i + 1];
+                    if (after == QUOTE) {
+                        i++;
+                    } else if (after == SEPARATOR || after == '\n' || after == '\r') {
+                        quoted = false;
+                    }
+                }
+            } else if (c == '\n') {
+                return i;
+            } else if (fieldStart && c == QUOTE) {
+                quoted = true;
+            }
+            fieldStart = !quoted && c == SEPARATOR;
+            i++;
+        }
+        return eof ? limit : -1;
+    }
+
+    private void fill() {
+        int shift = next;
+        if (shift > 0) {
+            System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+            limit -= shift;
+            next = 0;
+            recordStart = 0;
+            recordEnd = 0;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+        try {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new ManagerException("Ошибка чтения CSV", e);
+        }
+    }
+
+    private boolean openField() {
+        if (position < recordEnd && buffer[position] == QUOTE) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void closeField(boolean quoted) {
+        if (quoted) {
+            if (position >= recordEnd || buffer[position] != QUOTE) {
+                throw error("Не закрыта кавычка", position);
+            }
+            position++;
+        }
+        if (position < recordEnd && buffer[position] != SEPARATOR) {
+            throw error("Ожидалась запятая", position);
+        }
+        skipSeparator();
+    }
+
+    private void skipSeparator() {
+        if (position < recordEnd && buffer[position] == SEPARATOR) {
+            position++;
+        }
+    }
+
+    private int fieldEnd() {
+        int end = position;
+        while (end < recordEnd && buffer[end] != SEPARATOR && buffer[end] != QUOTE) {
+            end++;
+        }
+        return end;
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(buffer[i])) {
+                throw error("Ожидалась цифра", i);
+            }
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return value;
+    }
+
+    private boolean equalsRange(int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private ManagerException error(String message, int at) {
+        return new ManagerException(message + " в позиции " + (at - recordStart + 1) + ": " + record());
+    }
+}
@@ -1,58 +1,22 @@
 package utils;
 
+import exception.ManagerException;
 import manager.history.HistoryManager;
-import tasks.*;
-
-import java.time.LocalDateTime;
-
-import static tasks.TypeTask.EPIC;
-import static tasks.TypeTask.SUBTASK;
+import tasks.Task;
 
 public class CSVUtils {
     private static final String SEPARATOR_CSV = ",";
-    private static final int LENGTH_SUBTASK_ARRAY = 8;
 
+    /**
+     * Строка файла для задачи, с переводом строки. Текстовые поля - в кавычках, кавычка внутри удваивается.
+     *
+     * @param task (Задача / Эпик)/ПодЗадача.
+     * @return строка формата {1,TASK,'Task 1',NEW,'Description by Task 1','2023-01-01T00:00','PT30M',}
+     */
     public static String toString(Task task) {
-        TypeTask typeTask = task.getType();
-        if (typeTask.equals(SUBTASK)) {
-            return subTaskToString((SubTask) task);
-        } else if (typeTask.equals(EPIC)) {
-            return epicToString((Epic) task);
-        } else
-            return taskToString(task);
-    }
-
-    private static String epicToString(Epic epic) {
-        return epic.getId() + SEPARATOR_CSV
-                + epic.getType() + SEPARATOR_CSV
-                + "'" + epic.getTitle() + "'" + SEPARATOR_CSV
-                + epic.getStatus() + SEPARATOR_CSV
-                + "'" + epic.getDescription() + "'" + SEPARATOR_CSV
-                + "'" + epic.getStartTime() + "'" + SEPARATOR_CSV
-                + "'" + epic.getDuration() + "'" + SEPARATOR_CSV
-                + "\n";
-    }
-
-    private static String taskToString(Task task) {
-        return task.getId() + SEPARATOR_CSV
-                + task.getType() + SEPARATOR_CSV
-                + "'" + task.getTitle() + "'" + SEPARATOR_CSV
-                + task.getStatus() + SEPARATOR_CSV
-                + "'" + task.getDescription() + "'" + SEPARATOR_CSV
-                + "'" + task.getStartTime() + "'" + SEPARATOR_CSV
-                + "'" + task.getDuration() + "'" + SEPARATOR_CSV
-                + "\n";
-    }
-
-    private static String subTaskToString(SubTask subTask) {
-        return subTask.getId() + SEPARATOR_CSV
-                + subTask.getType() + SEPARATOR_CSV
-                + "'" + subTask.getTitle() + "'" + SEPARATOR_CSV
-                + subTask.getStatus() + SEPARATOR_CSV
-                + "'" + subTask.getDescription() + "'" + SEPARATOR_CSV
-                + "'" + subTask.getStartTime() + "'" + SEPARATOR_CSV
-                + "'" + subTask.getDuration() + "'" + SEPARATOR_CSV
-                + subTask.getEpicId() + "\n";
+        StringBuilder row = new StringBuilder(128);
+        CSVWriter.appendTask(row, task);
+        return row.append('\n').toString();
     }
 
     /**
@@ -60,44 +24,14 @@ public class CSVUtils {
      *
      * @param line Массив строк формата {1,TASK,'Task 1',NEW,'Description by Task 1',};
      * @return (Задача / Эпик)/ПодЗадача.
+     * @see CSVReader#readTask()
      */
     public static Task fromString(String line) {
-        String[] array = line.split(SEPARATOR_CSV);
-        int id = Integer.parseInt(array[0]);
-        TypeTask typeTask = TypeTask.valueOf(array[1]);
-        String title = quoteOff(array[2]);
-        Status status = Status.valueOf(array[3]);
-        String description = quoteOff(array[4]);
-        LocalDateTime startTime = LocalDateTime.parse(quoteOff(array[5]));
-        String duration = quoteOff(array[6]);
-
-        if (typeTask.equals(EPIC)) {
-            Epic epic = new Epic(title, description);
-            epic.setId(id);
-            epic.setStartEndTime(epic.getStartTime(), epic.getEndTime());
-            return epic;
-        } else if (typeTask.equals(SUBTASK) && array.length == LENGTH_SUBTASK_ARRAY) {
-            SubTask subTask = new SubTask(title, description, startTime, duration, Integer.parseInt(array[7]));
-            subTask.setId(id);
-            subTask.setStatus(status);
-            return subTask;
-        } else {
-            Task task = new Task(title, description, startTime, duration);
-            task.setId(id);
-            task.setStatus(status);
-            return task;
-
+        CSVReader reader = new CSVReader(line);
+        if (!reader.next()) {
+            throw new ManagerException("Пустая строка задачи");
         }
-    }
-
-    /**
-     * Удаление символа ['] в начале и конце строки
-     *
-     * @param stringInQuotes 'исходная строка в кавычках'
-     * @return полученная строка без кавычек
-     */
-    private static String quoteOff(String stringInQuotes) {
-        return stringInQuotes.substring(1, stringInQuotes.length() - 1);
+        return reader.readTask();
     }
 
     /**
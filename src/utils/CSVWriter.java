@@ -0,0 +1,164 @@
+package utils;
+
+import tasks.SubTask;
+import tasks.Task;
+import tasks.TypeTask;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Потоковая запись CSV-файла задач.
+ * <p>Запись собирается в переиспользуемом буфере и передаётся в {@link Writer} массивом символов,
+ * без промежуточной строки на каждую задачу. Текстовые поля записываются в одинарных кавычках,
+ * кавычка внутри значения удваивается - формат разбирает {@link CSVReader}.</p>
+ */
+public class CSVWriter {
+    private static final char QUOTE = '\'';
+    private static final char SEPARATOR = ',';
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    /**
+     * @param out приёмник; сбрасывает и закрывает вызывающая сторона
+     */
+    public CSVWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Запись задачи одной строкой
+     */
+    public void writeTask(Task task) throws IOException {
+        appendTask(row, task);
+        row.append('\n');
+        writeRow();
+    }
+
+    /**
+     * Запись идентификаторов задач через запятую (строка истории)
+     */
+    public void writeIds(Iterable<? extends Task> tasks) throws IOException {
+        boolean first = true;
+        for (Task task : tasks) {
+            if (!first) {
+                row.append(SEPARATOR);
+            }
+            first = false;
+            row.append(task.getId());
+            if (row.length() >= chars.length) {
+                writeRow();
+            }
+        }
+        writeRow();
+    }
+
+    /**
+     * Запись строки как есть, с переводом строки
+     */
+    public void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    private void writeRow() throws IOException {
+        int length = row.length();
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        row.setLength(0);
+    }
+
+    /**
+     * Задача в формате {@code id,type,'name',status,'description','startTime','duration',epicId}
+     * без перевода строки
+     */
+    static void appendTask(StringBuilder row, Task task) {
+        TypeTask type = task.getType();
+        row.append(task.getId()).append(SEPARATOR)
+                .append(type.name()).append(SEPARATOR);
+        appendQuoted(row, task.getTitle());
+        row.append(SEPARATOR).append(task.getStatus().name()).append(SEPARATOR);
+        appendQuoted(row, task.getDescription());
+        row.append(SEPARATOR).append(QUOTE);
+        appendDateTime(row, task.getStartTime());
+        row.append(QUOTE).append(SEPARATOR).append(QUOTE);
+        appendDuration(row, task.getDuration());
+        row.append(QUOTE).append(SEPARATOR);
+        if (type == TypeTask.SUBTASK) {
+            row.append(((SubTask) task).getEpicId());
+        }
+    }
+
+    private static void appendQuoted(StringBuilder row, String value) {
+        row.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) {
+                row.append(QUOTE);
+            }
+            row.append(c);
+        }
+        row.append(QUOTE);
+    }
+
+    /**
+     * Дата в формате {@link LocalDateTime#toString()}
+     */
+    private static void appendDateTime(StringBuilder row, LocalDateTime value) {
+        if (value.getYear() < 0 || value.getYear() > 9999 || value.getNano() != 0) {
+            row.append(value);
+            return;
+        }
+        appendDigits(row, value.getYear(), 4);
+        row.append('-');
+        appendDigits(row, value.getMonthValue(), 2);
+        row.append('-');
+        appendDigits(row, value.getDayOfMonth(), 2);
+        row.append('T');
+        appendDigits(row, value.getHour(), 2);
+        row.append(':');
+        appendDigits(row, value.getMinute(), 2);
+        if (value.getSecond() != 0) {
+            row.append(':');
+            appendDigits(row, value.getSecond(), 2);
+        }
+    }
+
+    /**
+     * Длительность в формате {@link Duration#toString()}
+     */
+    private static void appendDuration(StringBuilder row, Duration value) {
+        if (value.isNegative() || value.getNano() != 0) {
+            row.append(value);
+            return;
+        }
+        long seconds = value.getSeconds();
+        row.append("PT");
+        if (seconds == 0) {
+            row.append("0S");
+            return;
+        }
+        if (seconds / 3600 != 0) {
+            row.append(seconds / 3600).append('H');
+        }
+        if (seconds % 3600 / 60 != 0) {
+            row.append(seconds % 3600 / 60).append('M');
+        }
+        if (seconds % 60 != 0) {
+            row.append(seconds % 60).append('S');
+        }
+    }
+
+    private static void appendDigits(StringBuilder row, int value, int width) {
+        for (int divider = width == 4 ? 1000 : 10; divider > 0; divider /= 10) {
+            row.append((char) ('0' + value / divider % 10));
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Множество int с сохранением порядка добавления - список подзадач эпика.
+ * <p>Элементы лежат в массиве int в порядке добавления, рядом - таблица открытой адресации
+ * "значение -> позиция в массиве". Проверка, добавление и удаление по значению - O(1):
+ * удалённый элемент помечается в массиве, помеченные ячейки убираются одним проходом
+ * при удалении, когда их становится больше половины.</p>
+ * <p>Для совместимости (JSON, сравнение со списками) множество - это {@code List<Integer>}:
+ * {@link #get(int)} и {@link #size()} видят только действующие элементы. Чтение ничего не меняет,
+ * поэтому одно множество могут одновременно читать несколько потоков, пока его никто не изменяет.
+ * Обход ({@link #iterator()}, {@link #toIntArray()}) пропускает помеченные ячейки за O(n),
+ * {@link #get(int)} при помеченных ячейках ищет элемент проходом от начала.</p>
+ */
+public class IntLinkedSet extends AbstractList<Integer> {
+    private static final int REMOVED = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] elements = new int[MIN_CAPACITY];
+    /*
+     * Позиция элемента в elements + 1; 0 - свободная ячейка
+     */
+    private int[] table = new int[MIN_CAPACITY * 2];
+    private int used;
+    private int removed;
+
+    public IntLinkedSet() {
+    }
+
+    public IntLinkedSet(Collection<Integer> values) {
+        for (int value : values) {
+            addInt(value);
+        }
+    }
+
+    /**
+     * @return true - значение добавлено в конец, false - уже было в множестве
+     */
+    public boolean addInt(int value) {
+        if (value == REMOVED) {
+            throw new IllegalArgumentException("Значение " + value + " зарезервировано");
+        }
+        if (find(value) >= 0) {
+            return false;
+        }
+        if (used == elements.length) {
+            elements = Arrays.copyOf(elements, used * 2);
+        }
+        elements[used] = value;
+        if ((used - removed + 1) * 2 > table.length) {
+            rebuildTable(table.length * 2);
+        }
+        insert(value, used);
+        used++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * @return true - значение было в множестве и удалено
+     */
+    public boolean removeInt(int value) {
+        int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        elements[table[slot] - 1] = REMOVED;
+        deleteSlot(slot);
+        removed++;
+        if (removed > used / 2) {
+            compact();
+        }
+        modCount++;
+        return true;
+    }
+
+    public boolean containsInt(int value) {
+        return find(value) >= 0;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (removed == 0) {
+            return elements[index];
+        }
+        int position = skipRemoved(0);
+        for (int i = 0; i < index; i++) {
+            position = skipRemoved(position + 1);
+        }
+        return elements[position];
+    }
+
+    @Override
+    public int size() {
+        return used - removed;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return addInt(value);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && containsInt((Integer) value);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        if (!(value instanceof Integer)) {
+            return -1;
+        }
+        int slot = find((Integer) value);
+        if (slot < 0) {
+            return -1;
+        }
+        int position = table[slot] - 1;
+        int index = position;
+        for (int i = 0; removed > 0 && i < position; i++) {
+            if (elements[i] == REMOVED) {
+                index--;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object value) {
+        return indexOf(value);
+    }
+
+    /**
+     * Обход действующих элементов без изменения множества
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int position = skipRemoved(0);
+
+            @Override
+            public boolean hasNext() {
+                return position < used;
+            }
+
+            @Override
+            public Integer next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= used) {
+                    throw new NoSuchElementException();
+                }
+                int value = elements[position];
+                position = skipRemoved(position + 1);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Сравнение со списком через {@link #iterator()}: обход по {@link #get(int)} при помеченных ячейках - O(n^2)
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof List) || ((List<?>) o).size() != size()) {
+            return false;
+        }
+        Iterator<?> other = ((List<?>) o).iterator();
+        for (int value : this) {
+            if (!Integer.valueOf(value).equals(other.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public void clear() {
+        elements = new int[MIN_CAPACITY];
+        table = new int[MIN_CAPACITY * 2];
+        used = 0;
+        removed = 0;
+        modCount++;
+    }
+
+    /**
+     * @return копия действующих элементов в порядке добавления
+     */
+    public int[] toIntArray() {
+        if (removed == 0) {
+            return Arrays.copyOf(elements, used);
+        }
+        int[] live = new int[size()];
+        int count = 0;
+        for (int i = 0; i < used; i++) {
+            if (elements[i] != REMOVED) {
+                live[count++] = elements[i];
+            }
+        }
+        return live;
+    }
+
+    private int skipRemoved(int position) {
+        while (position < used && elements[position] == REMOVED) {
+            position++;
+        }
+        return position;
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int i = 0; i < used; i++) {
+            if (elements[i] != REMOVED) {
+                elements[live++] = elements[i];
+            }
+        }
+        used = live;
+        removed = 0;
+        rebuildTable(table.length);
+    }
+
+    private void rebuildTable(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < used; i++) {
+            if (elements[i] != REMOVED) {
+                insert(elements[i], i);
+            }
+        }
+    }
+
+    private static int index(int value, int mask) {
+        return (value ^ (value >>> 16)) & mask;
+    }
+
+    private void insert(int value, int position) {
+        int mask = table.length - 1;
+        int slot = index(value, mask);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    private int find(int value) {
+        int mask = table.length - 1;
+        int slot = index(value, mask);
+        while (table[slot] != 0) {
+            if (elements[table[slot] - 1] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Удаление из таблицы со сдвигом следующих записей цепочки назад (см. {@link IntMap})
+     */
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (table[next] != 0) {
+            int home = index(elements[table[next] - 1], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                table[free] = table[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[free] = 0;
+    }
+}
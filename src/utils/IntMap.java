@@ -0,0 +1,320 @@
+package utils;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Карта с ключами int на открытой адресации (линейное пробирование).
+ * <p>Ключи и значения лежат в двух массивах: ни объекта-обёртки Integer, ни объекта-узла на запись,
+ * как у {@link java.util.HashMap}. Удаление - со сдвигом следующих записей цепочки назад, без "надгробий".
+ * Методы с примитивным ключом ({@link #get(int)}, {@link #put(int, Object)}, ...) не упаковывают ключ;
+ * интерфейс {@link java.util.Map} сохранён для совместимости, его методы распаковывают ключ и делегируют.</p>
+ * <p>Индекс ключа - младшие биты ключа с подмешанными старшими (как у HashMap), поэтому последовательные
+ * id занимают соседние ячейки и обходятся по возрастанию, пока таблица их вмещает.
+ * Значение null не хранится.</p>
+ *
+ * @param <V> тип значения
+ */
+public class IntMap<V> extends AbstractMap<Integer, V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int modifications;
+
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize ожидаемое количество записей
+     */
+    public IntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntMap не хранит null");
+        }
+        int mask = keys.length - 1;
+        int slot = index(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        modifications++;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        deleteSlot(slot);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        modifications++;
+    }
+
+    /**
+     * Обход ключей без упаковки
+     */
+    public void forEachKey(IntConsumer action) {
+        int expected = modifications;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(keys[slot]);
+            }
+        }
+        if (expected != modifications) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * @return копия ключей в порядке обхода
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                result[i++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsKey((int) (Integer) key);
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put((int) key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove((int) (Integer) key) : null;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V element(int slot) {
+                        return (V) values[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Integer element(int slot) {
+                        return keys[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<Integer, V> element(int slot) {
+                        return new SimpleImmutableEntry<>(keys[slot], (V) values[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int index(int key, int mask) {
+        return (key ^ (key >>> 16)) & mask;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = index(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Удаление со сдвигом назад: записи цепочки за удалённой переносятся в освободившуюся ячейку,
+     * если их исходная ячейка не лежит между освободившейся и текущей.
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (values[next] != null) {
+            int home = index(keys[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[free] = null;
+        size--;
+        modifications++;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = index(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Обход занятых ячеек. Удаление через итератор не поддерживается: сдвиг назад
+     * переставил бы ещё не пройденные записи.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private final int expected = modifications;
+        private int slot = advance(0);
+
+        abstract T element(int slot);
+
+        private int advance(int from) {
+            int i = from;
+            while (i < values.length && values[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (expected != modifications) {
+                throw new ConcurrentModificationException();
+            }
+            if (slot >= values.length) {
+                throw new NoSuchElementException();
+            }
+            T element = element(slot);
+            slot = advance(slot + 1);
+            return element;
+        }
+    }
+}